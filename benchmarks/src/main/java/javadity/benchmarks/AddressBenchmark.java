@@ -0,0 +1,83 @@
+package javadity.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256Int;
+
+// The operations of Address used by the translated contracts. transfer and send are measured as a round trip between two
+// accounts, so that the balances are the same at the start of every invocation. The addresses are interned: aliceCopy is
+// alice, and intern measures Address.of on the packed address of an existing account.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class AddressBenchmark {
+    private static final int ADDRESS_LENGTH = 20;
+
+    private Address alice;
+    private Address bob;
+    private Address aliceCopy;
+    private byte[] aliceBytes;
+    private Uint256Int price;
+
+    @Setup
+    public void setup() {
+	aliceBytes = address(1);
+	alice = Address.of(aliceBytes);
+	bob = Address.of(address(2));
+	aliceCopy = Address.of(address(1));
+
+	alice.balance = new Uint256Int(1000000);
+	bob.balance = new Uint256Int(1000000);
+	price = new Uint256Int(42);
+    }
+
+    // An address whose bytes only differ from the others by the last one
+    private static byte[] address(int id) {
+	byte[] address = new byte[ADDRESS_LENGTH];
+	for (int i = 0; i < ADDRESS_LENGTH; i++)
+	    address[i] = (byte) (0xA0 + i);
+	address[ADDRESS_LENGTH - 1] = (byte) id;
+
+	return address;
+    }
+
+    @Benchmark
+    public Address transfer() throws Exception {
+	alice.transfer(bob, price);
+	bob.transfer(alice, price);
+
+	return alice;
+    }
+
+    @Benchmark
+    public boolean send() throws Exception {
+	return alice.send(bob, price) & bob.send(alice, price);
+    }
+
+    @Benchmark
+    public boolean eqSame() {
+	return alice.eq(aliceCopy);
+    }
+
+    @Benchmark
+    public boolean eqDifferent() {
+	return alice.eq(bob);
+    }
+
+    @Benchmark
+    public int hashCodeAddress() {
+	return alice.hashCode();
+    }
+
+    @Benchmark
+    public Address intern() {
+	return Address.of(aliceBytes);
+    }
+}
@@ -0,0 +1,58 @@
+package javadity.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// The Solidity sources used by the benchmarks. small and medium are bundled in the jar of the benchmarks so that the results
+// do not depend on anything outside of it, huge is not bundled but synthesized from medium at each run:
+//   small   one contract with modifiers, a mapping, an array, a transfer and a keccak256
+//   medium  four contracts (a token, an auction with a struct and an enum, a crowdfunding) with loops and conditionals
+//   huge    the contracts of medium repeated HUGE_COPIES times, renamed. It has the same contract shapes as medium, only more
+//           of them: it measures how the translation scales with the size of a source unit, not other kinds of contracts.
+
+public class Corpus {
+    public static final String SMALL = "small";
+    public static final String MEDIUM = "medium";
+    public static final String HUGE = "huge";
+
+    private static final int HUGE_COPIES = 25;
+    private static final String[] MEDIUM_CONTRACTS = {"Owned", "Token", "Auction", "Crowdfunding"};
+
+    public static String load(String name) {
+	if (name.equals(HUGE))
+	    return huge();
+
+	try (InputStream input = Corpus.class.getResourceAsStream("/corpus/" + name + ".sol")) {
+	    if (input == null)
+		throw new IllegalArgumentException("Unknown corpus: " + name);
+
+	    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	    byte[] buffer = new byte[8192];
+	    for (int read; (read = input.read(buffer)) != -1; )
+		bytes.write(buffer, 0, read);
+
+	    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+	catch (IOException e) {
+	    throw new UncheckedIOException(e);
+	}
+    }
+
+    private static String huge() {
+	String medium = load(MEDIUM);
+	String body = medium.substring(medium.indexOf("contract "));
+
+	StringBuilder source = new StringBuilder(medium.substring(0, medium.indexOf("contract ")));
+	for (int i = 0; i < HUGE_COPIES; i++) {
+	    String copy = body;
+	    for (String contract: MEDIUM_CONTRACTS)
+		copy = copy.replace("contract " + contract + " ", "contract " + contract + i + " ");
+	    source.append(copy).append('\n');
+	}
+
+	return source.toString();
+    }
+}
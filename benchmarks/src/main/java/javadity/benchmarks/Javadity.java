@@ -0,0 +1,120 @@
+package javadity.benchmarks;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTreeVisitor;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+// Access to the classes of the translator. They are in the unnamed package, which can not be imported from a named package
+// (and JMH does not accept benchmarks in the unnamed package), so they are reached by reflection. The lookups are done once,
+// the cost of a reflective call is negligible compared to the work of each phase.
+
+public class Javadity {
+    private static final Constructor<?> LEXER = constructor("SolidityLexer", CharStream.class);
+    private static final Constructor<?> PARSER = constructor("SolidityParser", TokenStream.class);
+    private static final Constructor<?> VISITOR = constructor("TranslateVisitor");
+    private static final Constructor<?> TRANSLATOR = constructor("Translator");
+
+    private static final Method SOURCE_UNIT = method("SolidityParser", "sourceUnit");
+    private static final Method REFINE_TRANSLATION = method("SymbolSolver", "refineTranslation", CompilationUnit.class);
+    private static final Method TRANSLATE = method("Translator", "translate", CharStream.class);
+    private static final Method SET_INFER_TYPES = method("Translator", "setInferTypes", boolean.class);
+
+    // Tokenizes the whole source
+    public static CommonTokenStream lex(String source) {
+	CommonTokenStream tokens = new CommonTokenStream((Lexer) newInstance(LEXER, CharStreams.fromString(source)));
+	tokens.fill();
+
+	return tokens;
+    }
+
+    // Parses the tokens the way the Translator does it (SLL prediction first; the corpus never needs the LL fallback)
+    public static ParserRuleContext parse(CommonTokenStream tokens) {
+	tokens.seek(0);
+
+	Parser parser = (Parser) newInstance(PARSER, tokens);
+	parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+	parser.setErrorHandler(new BailErrorStrategy());
+	parser.removeErrorListeners();
+
+	return (ParserRuleContext) invoke(SOURCE_UNIT, parser);
+    }
+
+    public static CompilationUnit visit(ParserRuleContext tree) {
+	ParseTreeVisitor<?> visitor = (ParseTreeVisitor<?>) newInstance(VISITOR);
+
+	return (CompilationUnit) visitor.visit(tree);
+    }
+
+    public static CompilationUnit refine(CompilationUnit cu) {
+	return (CompilationUnit) invoke(REFINE_TRANSLATION, null, cu);
+    }
+
+    // A Translator, which keeps its lexer and its parser between the translations
+    public static Object newTranslator(boolean inferTypes) {
+	Object translator = newInstance(TRANSLATOR);
+	invoke(SET_INFER_TYPES, translator, inferTypes);
+
+	return translator;
+    }
+
+    public static CompilationUnit translate(Object translator, String source) {
+	return (CompilationUnit) invoke(TRANSLATE, translator, CharStreams.fromString(source));
+    }
+
+    private static Constructor<?> constructor(String className, Class<?>... parameters) {
+	try {
+	    return Class.forName(className).getConstructor(parameters);
+	}
+	catch (ReflectiveOperationException e) {
+	    throw new IllegalStateException("The translator is not on the classpath", e);
+	}
+    }
+
+    private static Method method(String className, String name, Class<?>... parameters) {
+	try {
+	    return Class.forName(className).getMethod(name, parameters);
+	}
+	catch (ReflectiveOperationException e) {
+	    throw new IllegalStateException("The translator is not on the classpath", e);
+	}
+    }
+
+    private static Object newInstance(Constructor<?> constructor, Object... arguments) {
+	try {
+	    return constructor.newInstance(arguments);
+	}
+	catch (InvocationTargetException e) {
+	    throw rethrow(e);
+	}
+	catch (ReflectiveOperationException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    private static Object invoke(Method method, Object target, Object... arguments) {
+	try {
+	    return method.invoke(target, arguments);
+	}
+	catch (InvocationTargetException e) {
+	    throw rethrow(e);
+	}
+	catch (ReflectiveOperationException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    private static RuntimeException rethrow(InvocationTargetException e) {
+	if (e.getCause() instanceof RuntimeException)
+	    return (RuntimeException) e.getCause();
+	if (e.getCause() instanceof Error)
+	    throw (Error) e.getCause();
+
+	return new IllegalStateException(e.getCause());
+    }
+}
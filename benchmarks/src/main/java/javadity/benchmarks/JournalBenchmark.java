@@ -0,0 +1,118 @@
+package javadity.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import blockchain.Journal;
+import blockchain.Journaled;
+import blockchain.Mapping;
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Int;
+
+// The cost of the Journal for a call of a translated contract: a token transfer (two writes of a mapping and the write of a
+// state variable, as in the translation of the contract), outside of a call (nothing is recorded), in a call that succeeds,
+// in a call that fails after its writes, and in two calls nested in an outer one.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JournalBenchmark {
+    private static final int ACCOUNTS = 1000;
+    private static final int ADDRESS_LENGTH = 20;
+
+    private Address[] accounts;
+    private int next;
+
+    private Token token;
+    private final Uint256 one = new Uint256Int(1);
+
+    // The state of a translated token
+    static class Token implements Journaled {
+	Mapping<Address, Uint256> balances = new Mapping<>(new Uint256Int());
+	Uint256 transfers = new Uint256Int();
+
+	void transfer(Address from, Address to, Uint256 value) throws Exception {
+	    balances.set(from, balances.get(from).sub(value));
+	    balances.set(to, balances.get(to).sum(value));
+	    transfers = Journal.write(this, "transfers", transfers, transfers.sum(value));
+	}
+
+	@Override
+	public void restore(Object field, Object value) {
+	    switch ((String) field) {
+	    case "transfers":
+		transfers = (Uint256) value;
+		break;
+	    }
+	}
+    }
+
+    @Setup
+    public void setup() {
+	Random random = new Random(42);
+
+	accounts = new Address[ACCOUNTS];
+	token = new Token();
+	for (int i = 0; i < ACCOUNTS; i++) {
+	    byte[] address = new byte[ADDRESS_LENGTH];
+	    random.nextBytes(address);
+	    accounts[i] = Address.of(address);
+	    token.balances.set(accounts[i], new Uint256Int(1000000));
+	}
+    }
+
+    private Address nextAccount() {
+	next = next + 1 < ACCOUNTS ? next + 1 : 0;
+	return accounts[next];
+    }
+
+    @Benchmark
+    public Uint256 unjournaled() throws Exception {
+	token.transfer(nextAccount(), nextAccount(), one);
+	return token.transfers;
+    }
+
+    @Benchmark
+    public Uint256 committed() throws Exception {
+	int checkpoint = Journal.checkpoint();
+	token.transfer(nextAccount(), nextAccount(), one);
+	Journal.commit(checkpoint);
+
+	return token.transfers;
+    }
+
+    @Benchmark
+    public Uint256 rolledBack() throws Exception {
+	int checkpoint = Journal.checkpoint();
+	token.transfer(nextAccount(), nextAccount(), one);
+	Journal.rollback(checkpoint);
+	Journal.commit(checkpoint);
+
+	return token.transfers;
+    }
+
+    // The second inner call fails, the outer call keeps the writes of the first one
+    @Benchmark
+    public Uint256 nested() throws Exception {
+	int outer = Journal.checkpoint();
+
+	int first = Journal.checkpoint();
+	token.transfer(nextAccount(), nextAccount(), one);
+	Journal.commit(first);
+
+	int second = Journal.checkpoint();
+	token.transfer(nextAccount(), nextAccount(), one);
+	Journal.rollback(second);
+	Journal.commit(second);
+
+	Journal.commit(outer);
+
+	return token.transfers;
+    }
+}
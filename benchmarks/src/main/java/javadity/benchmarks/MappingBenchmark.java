@@ -0,0 +1,95 @@
+package javadity.benchmarks;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import blockchain.Mapping;
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Fixed;
+import blockchain.types.Uint256Int;
+
+// The accesses to the mappings of the translated contracts: a read and a write of a balance (balances[k] = balances[k] + 1),
+// for KEYS keys, with Uint256 keys spread over the whole range of an int (where an array indexed by the key could not be used)
+// and with Address keys. java.util.HashMap, with the same keys, is the reference.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MappingBenchmark {
+    private static final int KEYS = 10000;
+    private static final int ADDRESS_LENGTH = 20;
+
+    private Uint256[] uintKeys;
+    private Address[] addressKeys;
+    private int next;
+
+    private Mapping<Uint256, Uint256> uintMapping;
+    private Mapping<Address, Uint256> addressMapping;
+    private HashMap<Uint256, Uint256> uintHashMap;
+
+    private final Uint256 one = new Uint256Int(1);
+
+    @Setup
+    public void setup() {
+	Random random = new Random(42);
+
+	uintKeys = new Uint256[KEYS];
+	addressKeys = new Address[KEYS];
+	for (int i = 0; i < KEYS; i++) {
+	    uintKeys[i] = new Uint256Int(random.nextInt() & Integer.MAX_VALUE);
+
+	    byte[] address = new byte[ADDRESS_LENGTH];
+	    random.nextBytes(address);
+	    addressKeys[i] = Address.of(address);
+	}
+
+	uintMapping = new Mapping<>(new Uint256Int());
+	addressMapping = new Mapping<>(new Uint256Int());
+	uintHashMap = new HashMap<>();
+	for (int i = 0; i < KEYS; i++) {
+	    uintMapping.set(uintKeys[i], one);
+	    addressMapping.set(addressKeys[i], one);
+	    uintHashMap.put(uintKeys[i], one);
+	}
+    }
+
+    private int nextKey() {
+	next = next + 1 < KEYS ? next + 1 : 0;
+	return next;
+    }
+
+    @Benchmark
+    public Uint256 uintKey() throws Exception {
+	Uint256 key = uintKeys[nextKey()];
+	return uintMapping.set(key, uintMapping.get(key).sum(one));
+    }
+
+    @Benchmark
+    public Uint256 addressKey() throws Exception {
+	Address key = addressKeys[nextKey()];
+	return addressMapping.set(key, addressMapping.get(key).sum(one));
+    }
+
+    // A key of another implementation of Uint256 is the same key
+    @Benchmark
+    public Uint256 fixedKey() throws Exception {
+	Uint256 key = Uint256Fixed.valueOf(uintKeys[nextKey()].asBigInteger());
+	return uintMapping.get(key);
+    }
+
+    @Benchmark
+    public Uint256 uintHashMap() throws Exception {
+	Uint256 key = uintKeys[nextKey()];
+	Uint256 value = uintHashMap.getOrDefault(key, Uint256.ZERO).sum(one);
+	uintHashMap.put(key, value);
+
+	return value;
+    }
+}
@@ -0,0 +1,130 @@
+package javadity.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import blockchain.Block;
+import blockchain.Journal;
+import blockchain.Mapping;
+import blockchain.Message;
+import blockchain.Replay;
+import blockchain.TraceWriter;
+import blockchain.Transaction;
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Int;
+
+// The replay of a trace of TRANSACTIONS token transfers between ACCOUNTS accounts, on a contract written as the translation
+// of a token (the same Replay replays the trace at each invocation, as a simulation replaying several traces). direct makes the same calls by hand, with the arguments already built, it is the cost of the calls without the trace.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ReplayBenchmark {
+    private static final int TRANSACTIONS = 100000;
+    private static final int ACCOUNTS = 1000;
+    private static final int ADDRESS_LENGTH = 20;
+
+    private Token token;
+    private Path trace;
+    private Replay replay;
+
+    private Address[] senders;
+    private Address[] receivers;
+    private Uint256[] amounts;
+
+    // A token, as translated (the state is journaled and the call_ method reverts a failed call)
+    public static class Token extends Address {
+	Mapping<Address, Uint256> balances = new Mapping<>(new Uint256Int());
+	public Message msg;
+
+	public void call_move(Address to, Uint256 amount, Message _msg, Block _block, Transaction _tx) {
+	    msg = _msg;
+	    int checkpoint = Journal.checkpoint();
+	    try {
+		move(to, amount);
+	    }
+	    catch (Exception e) {
+		Journal.rollback(checkpoint);
+	    }
+	    catch (Error e) {
+		Journal.rollback(checkpoint);
+		throw e;
+	    }
+	    finally {
+		Journal.commit(checkpoint);
+	    }
+	}
+
+	private void move(Address to, Uint256 amount) throws Exception {
+	    if (balances.get(msg.sender).le(amount))
+		throw new Exception();
+	    balances.set(msg.sender, balances.get(msg.sender).sub(amount));
+	    balances.set(to, balances.get(to).sum(amount));
+	}
+    }
+
+    @Setup
+    public void setup() throws IOException {
+	Random random = new Random(42);
+
+	token = new Token();
+	Address[] accounts = new Address[ACCOUNTS];
+	for (int i = 0; i < ACCOUNTS; i++) {
+	    byte[] address = new byte[ADDRESS_LENGTH];
+	    random.nextBytes(address);
+	    accounts[i] = Address.of(address);
+	    token.balances.set(accounts[i], new Uint256Int(Integer.MAX_VALUE));
+	}
+
+	senders = new Address[TRANSACTIONS];
+	receivers = new Address[TRANSACTIONS];
+	amounts = new Uint256[TRANSACTIONS];
+	for (int i = 0; i < TRANSACTIONS; i++) {
+	    senders[i] = accounts[random.nextInt(ACCOUNTS)];
+	    receivers[i] = accounts[random.nextInt(ACCOUNTS)];
+	    amounts[i] = new Uint256Int(random.nextInt(1000));
+	}
+
+	replay = new Replay();
+	replay.register(token);
+	trace = Files.createTempFile("replay", ".trace");
+	try (TraceWriter writer = new TraceWriter(trace)) {
+	    for (int i = 0; i < TRANSACTIONS; i++)
+		writer.call(token, "move", senders[i], Uint256.ZERO, null, senders[i], Uint256.ONE, receivers[i], amounts[i]);
+	}
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+	Files.delete(trace);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+	replay.replay(trace);
+
+	return replay.getTransactions();
+    }
+
+    @Benchmark
+    public Token direct() {
+	Message msg = new Message();
+	Transaction tx = new Transaction(Uint256.ONE, null);
+	for (int i = 0; i < TRANSACTIONS; i++) {
+	    msg.sender = senders[i];
+	    msg.value = Uint256.ZERO;
+	    token.call_move(receivers[i], amounts[i], msg, null, tx);
+	}
+
+	return token;
+    }
+}
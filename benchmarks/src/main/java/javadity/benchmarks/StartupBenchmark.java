@@ -0,0 +1,89 @@
+package javadity.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// The time a new JVM takes to translate the small source unit and write its translation, which is what a user calling the
+// translator on one file waits for, with and without the class-data sharing archive built by mvn package -Pcds.
+// Each invocation starts the jar of the translator in its own process, so it is measured in single shot mode. The jar and the
+// archive are looked for in the target directory of the translator (the benchmarks are run from the root of the repository),
+// -Djavadity.jar and -Djavadity.archive can give other paths. The archive needs the JDK it was built with.
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    public static final String DEFAULT = "default";
+    public static final String CDS = "cds";
+
+    private static final String LOG = "output.log";
+
+    @Param({DEFAULT, CDS})
+    public String archive;
+
+    private List<String> command;
+    private Path directory;
+    private Path dst;
+
+    @Setup
+    public void setup() throws IOException {
+	Path jar = Paths.get(System.getProperty("javadity.jar", "target/javadity-1.0-SNAPSHOT.jar"));
+	Path archiveFile = Paths.get(System.getProperty("javadity.archive", "target/javadity.jsa"));
+
+	if (!Files.isRegularFile(jar))
+	    throw new IllegalStateException(jar + " does not exist, build the translator or give its jar with -Djavadity.jar");
+	if (archive.equals(CDS) && !Files.isRegularFile(archiveFile))
+	    throw new IllegalStateException(archiveFile + " does not exist, build it with mvn package -Pcds or give it with -Djavadity.archive");
+
+	directory = Files.createTempDirectory("javadity-startup");
+	Path src = directory.resolve(Corpus.SMALL + ".sol");
+	dst = directory.resolve(Corpus.SMALL + ".java");
+	Files.write(src, Corpus.load(Corpus.SMALL).getBytes(StandardCharsets.UTF_8));
+
+	command = new ArrayList<>();
+	command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+	// -Xshare:on makes the JVM fail instead of silently starting without an archive that can not be used
+	if (archive.equals(CDS)) {
+	    command.add("-XX:SharedArchiveFile=" + archiveFile.toAbsolutePath());
+	    command.add("-Xshare:on");
+	}
+	command.add("-jar");
+	command.add(jar.toAbsolutePath().toString());
+	command.add(src.toString());
+	command.add("--dst");
+	command.add(dst.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+	Files.deleteIfExists(dst);
+	Files.deleteIfExists(directory.resolve(Corpus.SMALL + ".sol"));
+	Files.deleteIfExists(directory.resolve(LOG));
+	Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long translate() throws Exception {
+	Files.deleteIfExists(dst);
+
+	Process process = new ProcessBuilder(command)
+	    .redirectErrorStream(true)
+	    .redirectOutput(ProcessBuilder.Redirect.to(directory.resolve(LOG).toFile()))
+	    .start();
+	int status = process.waitFor();
+
+	if (status != 0 || !Files.exists(dst))
+	    throw new IllegalStateException("The translation failed, see " + directory.resolve(LOG));
+
+	return Files.size(dst);
+    }
+}
@@ -0,0 +1,79 @@
+package javadity.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.openjdk.jmh.annotations.*;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+// Each phase of the translation, measured separately on the corpus: every benchmark starts from the output of the previous
+// phase (computed once in the setup), and translate measures the whole pipeline of a warm Translator (translateInferred
+// with the types inferred by the visitor, which does not need the symbol solver).
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class TranslatorBenchmark {
+    @Param({Corpus.SMALL, Corpus.MEDIUM, Corpus.HUGE})
+    public String corpus;
+
+    private String source;
+    private CommonTokenStream tokens;
+    private ParserRuleContext tree;
+    private CompilationUnit visited;
+    private CompilationUnit refined;
+    private Object translator;
+    private Object inferringTranslator;
+
+    @Setup
+    public void setup() {
+	source = Corpus.load(corpus);
+	tokens = Javadity.lex(source);
+	tree = Javadity.parse(tokens);
+	visited = Javadity.visit(tree);
+	refined = Javadity.refine(visited);
+	translator = Javadity.newTranslator(false);
+	inferringTranslator = Javadity.newTranslator(true);
+    }
+
+    @Benchmark
+    public CommonTokenStream lex() {
+	return Javadity.lex(source);
+    }
+
+    @Benchmark
+    public ParserRuleContext parse() {
+	return Javadity.parse(tokens);
+    }
+
+    @Benchmark
+    public CompilationUnit visit() {
+	return Javadity.visit(tree);
+    }
+
+    // The refinement parses the printed unit first, so it never modifies visited
+    @Benchmark
+    public CompilationUnit refine() {
+	return Javadity.refine(visited);
+    }
+
+    @Benchmark
+    public String emit() {
+	return refined.toString();
+    }
+
+    @Benchmark
+    public CompilationUnit translate() {
+	return Javadity.translate(translator, source);
+    }
+
+    @Benchmark
+    public CompilationUnit translateInferred() {
+	return Javadity.translate(inferringTranslator, source);
+    }
+}
@@ -0,0 +1,238 @@
+package javadity.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Adaptive;
+import blockchain.types.Uint256BigInteger;
+import blockchain.types.Uint256Fixed;
+import blockchain.types.Uint256Int;
+
+// The arithmetic of the Uint256 implementations used by the translated contracts. The operands are fixed so that the
+// results are comparable between runs; for Uint256BigInteger they are larger than an int but small enough that no
+// operation overflows. Uint256Fixed is measured on the same operands, and Uint256Adaptive on both the small operands
+// (which it keeps in a long) and the large ones (which it keeps in an Uint256Fixed).
+// The loops are the arithmetic of a typical contract loop (a total of prices times quantities), LOOP_ITERATIONS times, with
+// a large price (for intLoop and adaptiveSmallLoop, with the small one).
+// The mixed benchmarks have operands of two implementations (e.g. Uint256.ONE, an Uint256Int, added to an Uint256BigInteger).
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class Uint256Benchmark {
+    private static final int LOOP_ITERATIONS = 100;
+
+    private Uint256 intA;
+    private Uint256 intB;
+    private Uint256 bigA;
+    private Uint256 bigB;
+    private Uint256 fixedA;
+    private Uint256 fixedB;
+    private Uint256 adaptiveSmallA;
+    private Uint256 adaptiveSmallB;
+    private Uint256 adaptiveA;
+    private Uint256 adaptiveB;
+    private Uint256 intOne;
+    private Uint256 bigOne;
+    private Uint256 fixedOne;
+    private Uint256 adaptiveOne;
+
+    @Setup
+    public void setup() throws Exception {
+	intA = new Uint256Int(1234567);
+	intB = new Uint256Int(891);
+	bigA = new Uint256BigInteger("57896044618658097711785492504343953926634992332820282019728792003956564819967");
+	bigB = new Uint256BigInteger("340282366920938463463374607431768211455");
+	fixedA = Uint256Fixed.valueOf(bigA.asBigInteger());
+	fixedB = Uint256Fixed.valueOf(bigB.asBigInteger());
+	adaptiveSmallA = new Uint256Adaptive(1234567);
+	adaptiveSmallB = new Uint256Adaptive(891);
+	adaptiveA = Uint256Adaptive.valueOf(bigA.asBigInteger());
+	adaptiveB = Uint256Adaptive.valueOf(bigB.asBigInteger());
+	intOne = new Uint256Int(1);
+	bigOne = new Uint256BigInteger("1");
+	fixedOne = new Uint256Fixed(1);
+	adaptiveOne = new Uint256Adaptive(1);
+    }
+
+    @Benchmark
+    public Uint256 intSum() throws Exception {
+	return intA.sum(intB);
+    }
+
+    @Benchmark
+    public Uint256 intSub() throws Exception {
+	return intA.sub(intB);
+    }
+
+    @Benchmark
+    public Uint256 intMul() throws Exception {
+	return intA.mul(intB);
+    }
+
+    @Benchmark
+    public Uint256 intDiv() throws Exception {
+	return intA.div(intB);
+    }
+
+    @Benchmark
+    public boolean intEq() {
+	return intA.eq(intB);
+    }
+
+    @Benchmark
+    public boolean intLeq() {
+	return intA.leq(intB);
+    }
+
+    @Benchmark
+    public Uint256 intLoop() throws Exception {
+	return loop(intB, intOne);
+    }
+
+    @Benchmark
+    public Uint256 bigSum() throws Exception {
+	return bigA.sum(bigB);
+    }
+
+    @Benchmark
+    public Uint256 bigSub() throws Exception {
+	return bigA.sub(bigB);
+    }
+
+    @Benchmark
+    public Uint256 bigMul() throws Exception {
+	return bigB.mul(bigB);
+    }
+
+    @Benchmark
+    public Uint256 bigDiv() throws Exception {
+	return bigA.div(bigB);
+    }
+
+    @Benchmark
+    public boolean bigEq() {
+	return bigA.eq(bigB);
+    }
+
+    @Benchmark
+    public boolean bigLeq() {
+	return bigA.leq(bigB);
+    }
+
+    @Benchmark
+    public Uint256 bigLoop() throws Exception {
+	return loop(bigB, bigOne);
+    }
+
+    @Benchmark
+    public Uint256 fixedSum() throws Exception {
+	return fixedA.sum(fixedB);
+    }
+
+    @Benchmark
+    public Uint256 fixedSub() throws Exception {
+	return fixedA.sub(fixedB);
+    }
+
+    @Benchmark
+    public Uint256 fixedMul() throws Exception {
+	return fixedB.mul(fixedB);
+    }
+
+    @Benchmark
+    public Uint256 fixedDiv() throws Exception {
+	return fixedA.div(fixedB);
+    }
+
+    @Benchmark
+    public boolean fixedEq() {
+	return fixedA.eq(fixedB);
+    }
+
+    @Benchmark
+    public boolean fixedLeq() {
+	return fixedA.leq(fixedB);
+    }
+
+    @Benchmark
+    public Uint256 fixedLoop() throws Exception {
+	return loop(fixedB, fixedOne);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveSmallSum() throws Exception {
+	return adaptiveSmallA.sum(adaptiveSmallB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveSmallMul() throws Exception {
+	return adaptiveSmallA.mul(adaptiveSmallB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveSmallDiv() throws Exception {
+	return adaptiveSmallA.div(adaptiveSmallB);
+    }
+
+    @Benchmark
+    public boolean adaptiveSmallLeq() {
+	return adaptiveSmallA.leq(adaptiveSmallB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveSum() throws Exception {
+	return adaptiveA.sum(adaptiveB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveMul() throws Exception {
+	return adaptiveB.mul(adaptiveB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveDiv() throws Exception {
+	return adaptiveA.div(adaptiveB);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveSmallLoop() throws Exception {
+	return loop(adaptiveSmallB, adaptiveOne);
+    }
+
+    @Benchmark
+    public Uint256 adaptiveLoop() throws Exception {
+	return loop(adaptiveB, adaptiveOne);
+    }
+
+    @Benchmark
+    public Uint256 mixedBigInt() throws Exception {
+	return bigA.sum(intOne);
+    }
+
+    @Benchmark
+    public Uint256 mixedFixedAdaptive() throws Exception {
+	return fixedA.sum(adaptiveSmallB);
+    }
+
+    @Benchmark
+    public Uint256 mixedIntAdaptive() throws Exception {
+	return intA.sum(adaptiveSmallB);
+    }
+
+    private static Uint256 loop(Uint256 price, Uint256 one) throws Exception {
+	Uint256 total = one.sub(one);
+	Uint256 quantity = one;
+	for (int i = 0; i < LOOP_ITERATIONS; i++) {
+	    total = total.sum(price.mul(quantity));
+	    quantity = quantity.sum(one);
+	}
+
+	return total.div(quantity);
+    }
+}
@@ -0,0 +1,181 @@
+pragma solidity ^0.4.24;
+
+contract Owned {
+    address owner;
+
+    modifier onlyOwner() {
+        require(msg.sender == owner);
+        _;
+    }
+
+    constructor() public {
+        owner = msg.sender;
+    }
+
+    function changeOwner(address newOwner) public onlyOwner {
+        owner = newOwner;
+    }
+}
+
+contract Token {
+    address owner;
+    uint supply;
+    mapping(address => uint) balances;
+    mapping(address => uint) allowed;
+
+    modifier hasBalance(uint amount) {
+        require(balances[msg.sender] >= amount);
+        _;
+    }
+
+    constructor() public {
+        owner = msg.sender;
+        supply = 1000000;
+        balances[msg.sender] = supply;
+    }
+
+    function transfer(address to, uint amount) public hasBalance(amount) returns (bool ok) {
+        balances[msg.sender] = balances[msg.sender] - amount;
+        balances[to] = balances[to] + amount;
+        return true;
+    }
+
+    function approve(address spender, uint amount) public returns (bool ok) {
+        allowed[spender] = amount;
+        return true;
+    }
+
+    function transferFrom(address from, address to, uint amount) public returns (bool ok) {
+        if (balances[from] >= amount && allowed[msg.sender] >= amount) {
+            balances[from] = balances[from] - amount;
+            allowed[msg.sender] = allowed[msg.sender] - amount;
+            balances[to] = balances[to] + amount;
+            return true;
+        }
+        else {
+            return false;
+        }
+    }
+
+    function balanceOf(address a) public view returns (uint balance) {
+        return balances[a];
+    }
+}
+
+contract Auction {
+    enum State { Created, Running, Ended }
+
+    struct Bid {
+        address bidder;
+        uint amount;
+    }
+
+    address seller;
+    address highestBidder;
+    uint highestBid;
+    uint bids;
+    uint[32] history;
+    State state;
+    mapping(address => uint) pendingReturns;
+
+    modifier inState(State expected) {
+        require(state == expected);
+        _;
+    }
+
+    constructor() public {
+        seller = msg.sender;
+        state = State.Created;
+    }
+
+    function start() public inState(State.Created) {
+        require(msg.sender == seller);
+        state = State.Running;
+    }
+
+    function bid() public payable inState(State.Running) {
+        require(msg.value > highestBid);
+        if (highestBid != 0) {
+            pendingReturns[highestBidder] = pendingReturns[highestBidder] + highestBid;
+        }
+        highestBidder = msg.sender;
+        highestBid = msg.value;
+        history[bids % 32] = msg.value;
+        bids = bids + 1;
+    }
+
+    function withdraw() public returns (bool ok) {
+        uint amount = pendingReturns[msg.sender];
+        if (amount > 0) {
+            pendingReturns[msg.sender] = 0;
+            msg.sender.transfer(amount);
+        }
+        return true;
+    }
+
+    function end() public inState(State.Running) {
+        require(msg.sender == seller);
+        state = State.Ended;
+        seller.transfer(highestBid);
+    }
+
+    function average() public view returns (uint r) {
+        uint total = 0;
+        uint count = bids < 32 ? bids : 32;
+        for (uint i = 0; i < count; i = i + 1) {
+            total = total + history[i];
+        }
+        return count == 0 ? 0 : total / count;
+    }
+}
+
+contract Crowdfunding {
+    address beneficiary;
+    uint goal;
+    uint raised;
+    uint contributors;
+    bool closed;
+    mapping(address => uint) contributions;
+
+    constructor() public {
+        beneficiary = msg.sender;
+        goal = 100000;
+    }
+
+    function contribute() public payable {
+        require(!closed);
+        if (contributions[msg.sender] == 0) {
+            contributors = contributors + 1;
+        }
+        contributions[msg.sender] = contributions[msg.sender] + msg.value;
+        raised = raised + msg.value;
+    }
+
+    function close() public {
+        require(msg.sender == beneficiary);
+        require(raised >= goal);
+        closed = true;
+        beneficiary.transfer(raised);
+    }
+
+    function refund() public {
+        require(!closed);
+        uint amount = contributions[msg.sender];
+        require(amount > 0);
+        contributions[msg.sender] = 0;
+        raised = raised - amount;
+        msg.sender.transfer(amount);
+    }
+
+    function progress() public view returns (uint percent) {
+        uint p = raised * 100 / goal;
+        while (p > 100) {
+            p = p - 100;
+        }
+        return p;
+    }
+
+    function hash(uint value) public view returns (uint h) {
+        return keccak256(value);
+    }
+}
@@ -0,0 +1,37 @@
+pragma solidity ^0.4.24;
+
+contract Owned {
+    address owner;
+    uint counter;
+    mapping(address => uint) balances;
+    uint[10] arr;
+
+    modifier onlyOwner() {
+        require(msg.sender == owner);
+        _;
+    }
+
+    modifier costs(uint price) {
+        require(msg.value >= price);
+        _;
+    }
+
+    constructor() public {
+        owner = msg.sender;
+    }
+
+    function deposit() public payable {
+        balances[msg.sender] = balances[msg.sender] + msg.value;
+    }
+
+    function withdraw(uint amount) public onlyOwner costs(2) {
+        require(balances[msg.sender] >= amount);
+        balances[msg.sender] = balances[msg.sender] - amount;
+        msg.sender.transfer(amount);
+        arr[1] = keccak256(amount);
+    }
+
+    function get(uint i) public view returns (uint r) {
+        return arr[i];
+    }
+}
@@ -4,8 +4,14 @@ import org.antlr.v4.runtime.tree.*;
 import java.nio.file.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
 import net.sourceforge.argparse4j.inf.ArgumentParserException;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -29,35 +35,213 @@ public class App {
 	    .description("A Solidity to Java translator.");
 
 	argparser.addArgument("file")
-	    .help("Solidity file containing the contracts to translate");
+	    .nargs("*")
+	    .help("Solidity file containing the contracts to translate (several files, directories or glob patterns translate all the files they contain)");
 
 	argparser.addArgument("--dst", "-d")
 	    .help("Destination file")
 	    .setDefault("NoName.java");
 
+	argparser.addArgument("--out-dir", "-o")
+	    .help("Destination directory when several files are translated (by default, each translation is written next to its source)");
+
+	argparser.addArgument("--jobs", "-j")
+	    .type(Integer.class)
+	    .setDefault(Runtime.getRuntime().availableProcessors())
+	    .help("Number of files translated in parallel when several files are translated");
+
+	argparser.addArgument("--include-path", "-I")
+	    .action(Arguments.append())
+	    .metavar("DIR")
+	    .help("Directory where the imported files are looked for (after the current directory), can be given several times");
+
+	argparser.addArgument("--cache-dir")
+	    .help("Directory of the translation cache (the files and the contracts that did not change are not translated again)");
+
+	argparser.addArgument("--cache-size")
+	    .type(Long.class)
+	    .setDefault(256L)
+	    .help("Maximum size of the translation cache, in megabytes (the least recently used translations are removed first)");
+
+	argparser.addArgument("--cache-stats")
+	    .action(Arguments.storeTrue())
+	    .help("Print the number of hits and misses of the translation cache");
+
+	argparser.addArgument("--split-contracts")
+	    .action(Arguments.storeTrue())
+	    .help("Write each contract in its own file, in a directory named after the destination file without its extension");
+
+	argparser.addArgument("--parallel-contracts")
+	    .action(Arguments.storeTrue())
+	    .help("Translate the contracts of a source unit in parallel (the output is the same, this is useful for source units with a lot of contracts)");
+
+	argparser.addArgument("--infer-types")
+	    .action(Arguments.storeTrue())
+	    .help("Infer the types of the expressions from the Solidity declarations instead of resolving the Java code (the output is the same, the symbol solver is only used for the contracts where the inference fails)");
+
+	argparser.addArgument("--uint-implementation")
+	    .choices(Helper.UINT_IMPLEMENTATIONS)
+	    .setDefault(Helper.UINT_INT)
+	    .help("Implementation of Uint256 used by the translation for the literals and the default values (Uint256Fixed has the 256 bits arithmetic of Solidity, Uint256Adaptive too but is a long while the value fits in one, Uint256Int is an int)");
+
+	argparser.addArgument("--stream")
+	    .action(Arguments.storeTrue())
+	    .help("Translate each file one contract at a time, so that the memory needed depends on the largest contract rather than on the whole file (the types are always inferred, the cache is not used)");
+
+	argparser.addArgument("--watch")
+	    .action(Arguments.storeTrue())
+	    .help("Translate the files, then translate them again each time they (or the files they import) change, until stopped: only the contracts that changed and the contracts that depend on them are translated again, and the translations are written as when several files are translated");
+
+	argparser.addArgument("--parse-stats")
+	    .action(Arguments.storeTrue())
+	    .help("Print, for each file, the time spent parsing it and whether the fast SLL prediction mode was enough or the full LL mode was needed");
+
+	argparser.addArgument("--metrics")
+	    .nargs("?")
+	    .setConst("-")
+	    .metavar("FILE")
+	    .help("Write the time, the allocated memory and the number of nodes of each phase and of each refinement pass, as JSON, in FILE (or on the standard output)");
+
+	argparser.addArgument("--server")
+	    .type(Integer.class)
+	    .metavar("PORT")
+	    .help("Start a translation server listening on this local port, instead of translating a file");
+
+	argparser.addArgument("--connect")
+	    .type(Integer.class)
+	    .metavar("PORT")
+	    .help("Ask the translation server listening on this local port to do the translation");
+
+	argparser.addArgument("--stop")
+	    .action(Arguments.storeTrue())
+	    .help("Stop the translation server given by --connect");
+
 	Namespace ns = null;
+	List<String> files = null;
+	boolean batch = false;
 
 	try {
             ns = argparser.parseArgs(args);
+	    files = ns.getList("file");
+	    batch = files.size() > 1 || (files.size() == 1 && BatchTranslator.isPattern(files.get(0))) || ns.get("out_dir") != null;
+
+	    if (ns.get("server") == null && files.isEmpty() && !ns.getBoolean("stop"))
+		throw new ArgumentParserException("the argument file is required", argparser);
+	    if (ns.getBoolean("stop") && ns.get("connect") == null)
+		throw new ArgumentParserException("the argument --stop requires --connect", argparser);
+	    if (batch && ns.get("connect") != null)
+		throw new ArgumentParserException("the translation server translates one file at a time", argparser);
+	    if (ns.getBoolean("stream") && ns.get("cache_dir") != null)
+		throw new ArgumentParserException("the argument --stream can not be used with --cache-dir", argparser);
+	    if (ns.getBoolean("watch") && (ns.get("server") != null || ns.get("connect") != null || ns.getBoolean("stream") || ns.get("cache_dir") != null))
+		throw new ArgumentParserException("the argument --watch can not be used with --server, --connect, --stream or --cache-dir", argparser);
+	    if (ns.getInt("jobs") < 1)
+		throw new ArgumentParserException("the argument --jobs must be positive", argparser);
         } catch (ArgumentParserException e) {
             argparser.handleError(e);
             System.exit(1);
         }
 
-	CharStream input = CharStreams.fromFileName(ns.getString("file"));
-	SolidityLexer lexer = new SolidityLexer(input);
-	CommonTokenStream tokens = new CommonTokenStream(lexer);
-	SolidityParser parser = new SolidityParser(tokens);
-
-	ParseTree tree = parser.sourceUnit();
-	TranslateVisitor visitor = new TranslateVisitor();
-
-	CompilationUnit cu = (CompilationUnit) visitor.visit(tree);
+	Helper.setUintImplementation(ns.getString("uint_implementation"));
+
+	TranslationCache cache = null;
+	if (ns.get("cache_dir") != null)
+	    cache = new TranslationCache(Paths.get(ns.getString("cache_dir")), ns.getLong("cache_size") * 1024 * 1024, Helper.getUintImplementation());
+
+	List<Path> includePaths = new ArrayList<>();
+	if (ns.get("include_path") != null)
+	    for (Object includePath: ns.getList("include_path"))
+		includePaths.add(Paths.get(includePath.toString()));
+	ImportResolver importResolver = new ImportResolver(includePaths);
+
+	// Server mode: translate the files asked by the clients until one of them stops the server
+	if (ns.get("server") != null) {
+	    TranslationServer server = new TranslationServer(ns.getInt("server"), cache);
+	    server.setImportResolver(importResolver);
+	    server.setParseReport(ns.getBoolean("parse_stats"));
+	    server.setSplitContracts(ns.getBoolean("split_contracts"));
+	    server.setParallelContracts(ns.getBoolean("parallel_contracts"));
+	    server.setInferTypes(ns.getBoolean("infer_types"));
+	    server.setStreaming(ns.getBoolean("stream"));
+	    server.serve();
+	    printCacheStatistics(ns, cache);
+	    writeMetrics(ns, server.getMetrics(), Collections.emptyList());
+	    return;
+	}
+
+	// Client mode: the translation is done by the server
+	if (ns.get("connect") != null) {
+	    TranslationClient client = new TranslationClient(ns.getInt("connect"));
+
+	    if (ns.getBoolean("stop")) {
+		client.shutdown();
+		return;
+	    }
+
+	    long latency = client.translate(Paths.get(files.get(0)), Paths.get(ns.getString("dst")));
+	    System.out.printf("%s -> %s: %.2f ms%n", files.get(0), ns.getString("dst"), latency / 1e3);
+	    return;
+	}
+
+	// Watch mode: translate the files again each time they change, until the process is stopped
+	if (ns.getBoolean("watch")) {
+	    Path outputDirectory = ns.get("out_dir") != null ? Paths.get(ns.getString("out_dir")) : null;
+	    WatchTranslator translator = new WatchTranslator(files, outputDirectory);
+	    translator.setImportResolver(importResolver);
+	    translator.setParseReport(ns.getBoolean("parse_stats"));
+	    translator.setSplitContracts(ns.getBoolean("split_contracts"));
+	    translator.setParallelContracts(ns.getBoolean("parallel_contracts"));
+	    translator.setInferTypes(ns.getBoolean("infer_types"));
+	    translator.watch();
+	    return;
+	}
+
+	// Batch mode: translate all the files in parallel
+	if (batch) {
+	    Path outputDirectory = ns.get("out_dir") != null ? Paths.get(ns.getString("out_dir")) : null;
+	    BatchTranslator translator = new BatchTranslator(ns.getInt("jobs"), outputDirectory, cache);
+	    translator.setImportResolver(importResolver);
+	    translator.setParseReport(ns.getBoolean("parse_stats"));
+	    translator.setSplitContracts(ns.getBoolean("split_contracts"));
+	    translator.setParallelContracts(ns.getBoolean("parallel_contracts"));
+	    translator.setInferTypes(ns.getBoolean("infer_types"));
+	    translator.setStreaming(ns.getBoolean("stream"));
+
+	    int failures = translator.translate(BatchTranslator.findSources(files));
+	    printCacheStatistics(ns, cache);
+	    writeMetrics(ns, translator.getMetrics(), translator.getFileMetrics());
+	    if (failures > 0)
+		System.exit(1);
+	    return;
+	}
+
+	Translator translator = new Translator();
+	translator.setCache(cache);
+	translator.setImportResolver(importResolver);
+	translator.setParseReport(ns.getBoolean("parse_stats"));
+	translator.setSplitContracts(ns.getBoolean("split_contracts"));
+	translator.setParallelContracts(ns.getBoolean("parallel_contracts"));
+	translator.setInferTypes(ns.getBoolean("infer_types"));
+	translator.setStreaming(ns.getBoolean("stream"));
+	translator.translate(Paths.get(files.get(0)), Paths.get(ns.getString("dst")));
+	printCacheStatistics(ns, cache);
+	writeMetrics(ns, translator.getMetrics(), Collections.singletonList(translator.getLastMetrics()));
+    }
 
-	cu = SymbolSolver.refineTranslation(cu);
+    private static void printCacheStatistics(Namespace ns, TranslationCache cache) {
+	if (cache != null && ns.getBoolean("cache_stats"))
+	    System.err.println(cache);
+    }
 
-	Path file = Paths.get(ns.getString("dst"));
+    private static void writeMetrics(Namespace ns, TranslationMetrics total, List<TranslationMetrics> files) throws IOException {
+	String destination = ns.getString("metrics");
+	if (destination == null)
+	    return;
 
-	Files.write(file, cu.toString().getBytes());
+	String json = TranslationMetrics.toJson(total, files);
+	if (destination.equals("-"))
+	    System.out.print(json);
+	else
+	    Files.write(Paths.get(destination), json.getBytes(StandardCharsets.UTF_8));
     }
 }
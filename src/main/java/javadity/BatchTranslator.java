@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.*;
+
+// Translates a lot of Solidity files at once, on a fork-join pool. Each thread of the pool has its own Translator
+// (they all share the type solver of the SymbolSolver). The failure of a file does not stop the translation of the others.
+
+public class BatchTranslator {
+    private static final String SOLIDITY_EXTENSION = ".sol";
+    private static final String JAVA_EXTENSION = ".java";
+
+    private final int parallelism;
+
+    // Directory where the translations are written, if it is null each translation is written next to its source
+    private final Path outputDirectory;
+
+    // Cache shared by all the translators, null if there is none
+    private final TranslationCache cache;
+
+    // The translators of all the threads, to sum their metrics at the end
+    private final ConcurrentLinkedQueue<Translator> allTranslators = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Translator> translators;
+
+    private ImportResolver importResolver;
+    private boolean parseReport = false;
+    private boolean splitContracts = false;
+    private boolean parallelContracts = false;
+    private boolean inferTypes = false;
+    private boolean streaming = false;
+
+    // Metrics of all the files translated, and of each of them
+    private final TranslationMetrics metrics = new TranslationMetrics();
+    private final List<TranslationMetrics> fileMetrics = Collections.synchronizedList(new ArrayList<>());
+
+    public BatchTranslator(int parallelism, Path outputDirectory, TranslationCache cache) {
+	this.parallelism = parallelism;
+	this.outputDirectory = outputDirectory;
+	this.cache = cache;
+
+	translators = ThreadLocal.withInitial(() -> {
+		Translator translator = new Translator();
+		translator.setCache(cache);
+		translator.setImportResolver(importResolver);
+		translator.setParseReport(parseReport);
+		translator.setSplitContracts(splitContracts);
+		translator.setParallelContracts(parallelContracts);
+		translator.setInferTypes(inferTypes);
+		translator.setStreaming(streaming);
+		allTranslators.add(translator);
+		return translator;
+	    });
+    }
+
+    // The resolver is shared by all the threads, so that a file imported by several files is parsed once
+    public void setImportResolver(ImportResolver importResolver) {
+	this.importResolver = importResolver;
+    }
+
+    public void setParseReport(boolean parseReport) {
+	this.parseReport = parseReport;
+    }
+
+    public void setSplitContracts(boolean splitContracts) {
+	this.splitContracts = splitContracts;
+    }
+
+    public void setParallelContracts(boolean parallelContracts) {
+	this.parallelContracts = parallelContracts;
+    }
+
+    public void setInferTypes(boolean inferTypes) {
+	this.inferTypes = inferTypes;
+    }
+
+    public void setStreaming(boolean streaming) {
+	this.streaming = streaming;
+    }
+
+    // Translates all the files and prints a summary. Returns the number of files that could not be translated.
+    public int translate(List<SourceFile> files) throws Exception {
+	ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+	ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+	long start = System.nanoTime();
+	try {
+	    pool.submit(() -> files.parallelStream().forEach(file -> {
+			try {
+			    translate(file);
+			}
+			catch (Exception | AssertionError | StackOverflowError e) {
+			    failures.add(file.path + ": " + e);
+			}
+		    }))
+		.get();
+	}
+	finally {
+	    pool.shutdown();
+	}
+	long elapsed = System.nanoTime() - start;
+
+	allTranslators.forEach(translator -> metrics.add(translator.getMetrics()));
+	fileMetrics.sort(Comparator.comparing(TranslationMetrics::getSource));
+
+	failures.forEach(System.err::println);
+	System.out.printf("Translated %d files (%d failed) in %.2f s with %d threads: %.1f files/sec%n",
+			  metrics.getFiles(), failures.size(), elapsed / 1e9, parallelism, metrics.getFiles() / (elapsed / 1e9));
+	System.out.print("Time and allocated memory per phase (summed over all threads):\n" + metrics);
+
+	return failures.size();
+    }
+
+    private void translate(SourceFile file) throws IOException {
+	Path dst = destination(file, outputDirectory);
+	if (dst.getParent() != null)
+	    Files.createDirectories(dst.getParent());
+
+	Translator translator = translators.get();
+	translator.translate(file.path, dst);
+	fileMetrics.add(translator.getLastMetrics());
+    }
+
+    public TranslationMetrics getMetrics() {
+	return metrics;
+    }
+
+    public List<TranslationMetrics> getFileMetrics() {
+	return fileMetrics;
+    }
+
+    // The file where the translation of a file is written: in outputDirectory with the same relative path, or next to the file
+    // if outputDirectory is null
+    static Path destination(SourceFile file, Path outputDirectory) {
+	String name = file.relativePath.toString();
+	if (name.endsWith(SOLIDITY_EXTENSION))
+	    name = name.substring(0, name.length() - SOLIDITY_EXTENSION.length());
+	name += JAVA_EXTENSION;
+
+	if (outputDirectory == null)
+	    return file.path.resolveSibling(Paths.get(name).getFileName());
+
+	return outputDirectory.resolve(name);
+    }
+
+    // Returns true if the argument can not be a single Solidity file (it is a directory or a glob pattern)
+    public static boolean isPattern(String argument) {
+	return Files.isDirectory(Paths.get(argument)) || hasWildcard(argument);
+    }
+
+    private static boolean hasWildcard(String argument) {
+	return argument.matches(".*[*?\\[{].*");
+    }
+
+    // Finds the Solidity files given on the command line. An argument can be a file, a directory (all the .sol files it contains
+    // are translated) or a glob pattern (for example contracts/*.sol).
+    public static List<SourceFile> findSources(List<String> arguments) throws IOException {
+	List<SourceFile> files = new ArrayList<>();
+
+	for (String argument: arguments) {
+	    Path path = Paths.get(argument);
+
+	    if (Files.isRegularFile(path))
+		files.add(new SourceFile(path, path.getFileName()));
+	    else if (Files.isDirectory(path))
+		files.addAll(walk(path, FileSystems.getDefault().getPathMatcher("glob:**" + SOLIDITY_EXTENSION)));
+	    else {
+		// The base directory of a glob pattern is the part of the pattern before the first component with a wildcard
+		Path base = Paths.get("");
+		Path pattern = Paths.get("");
+		boolean inPattern = false;
+
+		for (Path part: path) {
+		    inPattern = inPattern || hasWildcard(part.toString());
+		    if (inPattern)
+			pattern = pattern.resolve(part);
+		    else
+			base = base.resolve(part);
+		}
+		if (path.isAbsolute())
+		    base = path.getRoot().resolve(base);
+
+		if (!inPattern)
+		    throw new NoSuchFileException(argument);
+
+		files.addAll(walk(base, FileSystems.getDefault().getPathMatcher("glob:" + pattern)));
+	    }
+	}
+
+	return files;
+    }
+
+    private static List<SourceFile> walk(Path directory, PathMatcher matcher) throws IOException {
+	if (!Files.isDirectory(directory))
+	    return Collections.emptyList();
+
+	try (Stream<Path> paths = Files.walk(directory)) {
+	    return paths
+		.filter(Files::isRegularFile)
+		.filter(path -> matcher.matches(directory.relativize(path)))
+		.sorted()
+		.map(path -> new SourceFile(path, directory.relativize(path)))
+		.collect(Collectors.toList());
+	}
+    }
+}
+
+// A Solidity file to translate, with its path relative to the directory (or glob pattern) it was found in.
+// The translation keeps the same relative path in the output directory.
+class SourceFile {
+    final Path path;
+    final Path relativePath;
+
+    SourceFile(Path path, Path relativePath) {
+	this.path = path;
+	this.relativePath = relativePath;
+    }
+}
@@ -0,0 +1,76 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+// Writes the Java code of a translation. The unit is printed one class at a time straight into a buffered writer,
+// so that the code of the whole unit is never in memory at once (the output is the same as cu.toString()).
+
+public class Emitter {
+    private static final String JAVA_EXTENSION = ".java";
+
+    // Writes the whole unit in the file dst
+    public static void write(CompilationUnit cu, Path dst) throws IOException {
+	try (Writer out = Files.newBufferedWriter(dst, StandardCharsets.UTF_8)) {
+	    writeImports(cu, out);
+
+	    for (int i = 0; i < cu.getTypes().size(); i++) {
+		if (i > 0)
+		    out.write(System.lineSeparator());
+		writeType(cu.getType(i), out);
+	    }
+	}
+    }
+
+    // Writes each class of the unit in its own file of the directory (with the imports of the unit). If parallel is true,
+    // the files are written in parallel.
+    public static void writeContracts(CompilationUnit cu, Path directory, boolean parallel) throws IOException {
+	Files.createDirectories(directory);
+
+	try {
+	    (parallel ? cu.getTypes().parallelStream() : cu.getTypes().stream()).forEach(type -> {
+		    Path dst = directory.resolve(type.getNameAsString() + JAVA_EXTENSION);
+
+		    try (Writer out = Files.newBufferedWriter(dst, StandardCharsets.UTF_8)) {
+			writeImports(cu, out);
+			writeType(type, out);
+		    }
+		    catch (IOException e) {
+			throw new UncheckedIOException(e);
+		    }
+		});
+	}
+	catch (UncheckedIOException e) {
+	    throw e.getCause();
+	}
+    }
+
+    // The directory where the classes of a unit are written when the unit would have been written in dst
+    // (the name of dst without the .java extension)
+    public static Path contractsDirectory(Path dst) {
+	String name = dst.getFileName().toString();
+	if (name.endsWith(JAVA_EXTENSION))
+	    name = name.substring(0, name.length() - JAVA_EXTENSION.length());
+
+	return dst.resolveSibling(name);
+    }
+
+    // The imports and the classes of a unit can also be written separately (see Translator.translateStreaming)
+    static void writeImports(CompilationUnit cu, Writer out) throws IOException {
+	for (ImportDeclaration declaration: cu.getImports())
+	    out.write(declaration.toString());
+
+	if (!cu.getImports().isEmpty())
+	    out.write(System.lineSeparator());
+    }
+
+    static void writeType(TypeDeclaration<?> type, Writer out) throws IOException {
+	out.write(type.toString());
+	out.write(System.lineSeparator());
+    }
+}
@@ -9,6 +9,7 @@ import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.ParserRuleContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -20,21 +21,79 @@ import java.util.stream.*;
 
 public class Helper {
     public static final String UINT = "Uint256";
-    public static final int mappingSize = 50;
+    public static final String UINT_PACKAGE = "blockchain.types";
+    public static final String MAPPING = "Mapping";
+    public static final String JOURNAL = "Journal";
+    public static final String JOURNALED = "Journaled";
+    public static final String RESTORE = "restore";
+
+    // The magic variables that are set by each call, they are not part of the state of the contract (see getRestore)
+    public static final List<String> ENVIRONMENT_VARIABLES = Arrays.asList(new String[] {"now", "msg", "block", "tx"});
+
+    // The implementations of Uint256 that can be used for the literals and the default values of the translation
+    public static final String UINT_INT = "Uint256Int";
+    public static final String UINT_FIXED = "Uint256Fixed";
+    public static final String UINT_ADAPTIVE = "Uint256Adaptive";
+    public static final String[] UINT_IMPLEMENTATIONS = {UINT_INT, UINT_FIXED, UINT_ADAPTIVE};
+
+    // The implementation used by all the translations of the process
+    private static volatile String uintImplementation = UINT_INT;
 
     public static ClassOrInterfaceType getUintType() {
 	return new ClassOrInterfaceType(null, UINT);
     }
 
     public static ClassOrInterfaceType getUintTypeIntImplem() {
-	return new ClassOrInterfaceType(null, "Uint256Int");
+	return new ClassOrInterfaceType(null, uintImplementation);
+    }
+
+    public static String getUintImplementation() {
+	return uintImplementation;
+    }
+
+    // Must be called before the first translation, the translations of a process all use the same implementation
+    public static void setUintImplementation(String implementation) {
+	uintImplementation = implementation;
     }
 
 
+    // The type of a mapping, the values of a primitive type are boxed (see blockchain.Mapping)
+    public static ClassOrInterfaceType getMappingType(Type key, Type value) {
+	Type boxed = value.isPrimitiveType() ? value.asPrimitiveType().toBoxedType() : value;
+
+	return new ClassOrInterfaceType(null, new SimpleName(MAPPING), NodeList.nodeList(key, boxed));
+    }
+
+    // new Mapping<>(zero)
+    public static ObjectCreationExpr getMapping(Expression zero) {
+	ClassOrInterfaceType diamond = new ClassOrInterfaceType(null, new SimpleName(MAPPING), new NodeList<Type>());
+
+	return new ObjectCreationExpr(null, diamond, NodeList.nodeList(zero));
+    }
+
+    // Mapping.nested(() -> zero), the zero value is created for each key
+    public static MethodCallExpr getNestedMapping(Expression zero) {
+	LambdaExpr create = new LambdaExpr(new NodeList<Parameter>(), new ExpressionStmt(zero), true);
+
+	return new MethodCallExpr(new NameExpr(MAPPING), "nested", NodeList.nodeList(create));
+    }
+
+    // The write of an element of a mapping, get is the call that reads it
+    public static MethodCallExpr getMappingSet(MethodCallExpr get, Expression value) {
+	NodeList<Expression> arguments = NodeList.nodeList(get.getArgument(0), value);
+
+	return new MethodCallExpr(get.getScope().orElse(null), "set", arguments);
+    }
+
     public static ClassOrInterfaceType getAddressType() {
 	return new ClassOrInterfaceType(null, "Address");
     }
 
+    // Address.ZERO, the default value of an address (see blockchain.types.Address)
+    public static FieldAccessExpr getAddressZero() {
+	return new FieldAccessExpr(new NameExpr("Address"), "ZERO");
+    }
+
     public static ClassOrInterfaceType getMessageType() {
 	return new ClassOrInterfaceType(null, "Message");
     }
@@ -119,14 +178,25 @@ public class Helper {
 	else
 	    call = new ReturnStmt(new MethodCallExpr(null, method.getName().asString(), arguments));
 
-	// TryCatch
+	// TryCatch, the writes of a call that fails are reverted (see blockchain.Journal)
+	VariableDeclarator checkpoint = new VariableDeclarator(PrimitiveType.intType(), "checkpoint",
+							       new MethodCallExpr(new NameExpr(JOURNAL), "checkpoint"));
+	statements.add(new ExpressionStmt(new VariableDeclarationExpr(checkpoint)));
+
 	BlockStmt tryBlock = new BlockStmt(NodeList.nodeList(call));
 
+	ExpressionStmt rollback = new ExpressionStmt(new MethodCallExpr(new NameExpr(JOURNAL), "rollback", NodeList.nodeList(new NameExpr("checkpoint"))));
 	ExpressionStmt printExc = new ExpressionStmt(new MethodCallExpr(new NameExpr("System.out"), "println", NodeList.nodeList(new NameExpr("e"))));
-	BlockStmt catchBlock = new BlockStmt(NodeList.nodeList(printExc));
+	BlockStmt catchBlock = new BlockStmt(NodeList.nodeList(rollback, printExc));
 	CatchClause catchClause = new CatchClause(new Parameter(new ClassOrInterfaceType(null, "Exception"), "e"), catchBlock);
 
-	TryStmt tryStmt = new TryStmt(tryBlock, NodeList.nodeList(catchClause), null);
+	// An Error (a StackOverflowError of a deep recursion for example) also reverts the writes, and is thrown again
+	BlockStmt errorBlock = new BlockStmt(NodeList.nodeList(rollback.clone(), new ThrowStmt(new NameExpr("e"))));
+	CatchClause errorClause = new CatchClause(new Parameter(new ClassOrInterfaceType(null, "Error"), "e"), errorBlock);
+
+	// After a rollback, there is nothing left to commit
+	ExpressionStmt commit = new ExpressionStmt(new MethodCallExpr(new NameExpr(JOURNAL), "commit", NodeList.nodeList(new NameExpr("checkpoint"))));
+	TryStmt tryStmt = new TryStmt(tryBlock, NodeList.nodeList(catchClause, errorClause), new BlockStmt(NodeList.nodeList(commit)));
 
 	statements.add(tryStmt);
 	if (!method.getType().asString().equals("void"))
@@ -137,6 +207,43 @@ public class Helper {
 	return callable;
     }
 
+    // The method that writes back a value recorded in the Journal (see blockchain.Journaled): a switch on the name of the field.
+    // The fields of a contract that are not its own (the ones of its parents, and its balance) are restored by super.restore.
+    public static MethodDeclaration getRestore(List<FieldDeclaration> fields, boolean contract) {
+	MethodDeclaration restore = new MethodDeclaration(EnumSet.of(Modifier.PUBLIC), new VoidType(), RESTORE);
+	ClassOrInterfaceType object = new ClassOrInterfaceType(null, "Object");
+	restore.addParameter(object, "field");
+	restore.addParameter(object.clone(), "value");
+	restore.addMarkerAnnotation("Override");
+
+	NodeList<SwitchEntryStmt> entries = new NodeList<>();
+	boolean generic = false;
+	for (FieldDeclaration field: fields)
+	    for (VariableDeclarator var: field.getVariables()) {
+		String name = var.getNameAsString();
+		if (field.isStatic() || (contract && ENVIRONMENT_VARIABLES.contains(name)))
+		    continue;
+
+		AssignExpr assign = new AssignExpr(new NameExpr(name), new CastExpr(var.getType().clone(), new NameExpr("value")), AssignExpr.Operator.ASSIGN);
+		entries.add(new SwitchEntryStmt(new StringLiteralExpr(name), NodeList.nodeList(new ExpressionStmt(assign), new BreakStmt((SimpleName) null))));
+		generic |= var.getType().isClassOrInterfaceType() && var.getType().asClassOrInterfaceType().getTypeArguments().isPresent();
+	    }
+
+	if (contract) {
+	    MethodCallExpr parent = new MethodCallExpr(new SuperExpr(), RESTORE, NodeList.nodeList(new NameExpr("field"), new NameExpr("value")));
+	    entries.add(new SwitchEntryStmt(null, NodeList.nodeList(new ExpressionStmt(parent))));
+	}
+
+	// The cast of a mapping is unchecked
+	if (generic)
+	    restore.addSingleMemberAnnotation("SuppressWarnings", new StringLiteralExpr("unchecked"));
+
+	SwitchStmt switchStmt = new SwitchStmt(new CastExpr(new ClassOrInterfaceType(null, "String"), new NameExpr("field")), entries);
+	restore.setBody(new BlockStmt(NodeList.nodeList(switchStmt)));
+
+	return restore;
+    }
+
     public static MethodDeclaration getSelfdestruct() {
 	EnumSet<Modifier> modifiers = EnumSet.of(Modifier.PRIVATE);
 	NodeList<Parameter> parameters = NodeList.nodeList(new Parameter(getAddressType(), "rcv"));
@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+// Finds the files imported by a Solidity file and keeps the parse trees of all the files it parsed, keyed by their real path
+// with the hash of the content they were parsed from: during a run, a file imported by many others is lexed and parsed once
+// (and again only if it changed). The resolver can be shared by the translators of several threads, a file needed by several
+// threads at the same time is parsed by the first one while the others wait for it.
+// As with solc, an import starting with ./ or ../ is relative to the directory of the importing file, the other ones are
+// looked for in the current directory and then in the include paths.
+
+public class ImportResolver {
+    private final List<Path> includePaths;
+
+    private final ConcurrentHashMap<Path, ParsedUnit> units = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Object> locks = new ConcurrentHashMap<>();
+
+    public ImportResolver(List<Path> includePaths) {
+	this.includePaths = new ArrayList<>(includePaths);
+    }
+
+    // Returns the parsed file, it is parsed with parser unless it was already parsed with the same content
+    ParsedUnit parse(Path file, Function<CharStream, SolidityParser.SourceUnitContext> parser) throws IOException {
+	Path path = file.toRealPath();
+
+	synchronized (locks.computeIfAbsent(path, elt -> new Object())) {
+	    byte[] content = Files.readAllBytes(path);
+	    String hash = hash(content);
+
+	    ParsedUnit unit = units.get(path);
+	    if (unit == null || !unit.hash.equals(hash)) {
+		unit = new ParsedUnit(path, hash, parser.apply(CharStreams.fromString(new String(content, StandardCharsets.UTF_8), file.toString())));
+		units.put(path, unit);
+	    }
+
+	    return unit;
+	}
+    }
+
+    // Returns the files imported by the unit, directly or not. Each file is returned once, after the files it imports
+    // (the unit itself is not returned, even if there is a cycle)
+    List<ParsedUnit> resolveImports(ParsedUnit unit, Function<CharStream, SolidityParser.SourceUnitContext> parser) throws IOException {
+	List<ParsedUnit> imports = new ArrayList<>();
+	Set<Path> visited = new HashSet<>();
+	visited.add(unit.path);
+
+	collectImports(unit.path, unit.tree.importDirective(), visited, parser, imports);
+
+	return imports;
+    }
+
+    // Returns the files imported by some import directives of a file that is not parsed as a whole (see Translator.translateStreaming),
+    // visited contains the real paths of the files that are already imported, and is updated
+    List<ParsedUnit> resolveImports(Path importer, List<SolidityParser.ImportDirectiveContext> directives, Set<Path> visited,
+				    Function<CharStream, SolidityParser.SourceUnitContext> parser) throws IOException {
+	List<ParsedUnit> imports = new ArrayList<>();
+	collectImports(importer, directives, visited, parser, imports);
+
+	return imports;
+    }
+
+    private void collectImports(Path importer, List<SolidityParser.ImportDirectiveContext> directives, Set<Path> visited,
+				Function<CharStream, SolidityParser.SourceUnitContext> parser, List<ParsedUnit> imports) throws IOException {
+	for (SolidityParser.ImportDirectiveContext directive: directives) {
+	    String literal = directive.StringLiteral().getText();
+	    String name = literal.substring(1, literal.length() - 1);
+
+	    // An import that can not be found is ignored, as all the imports used to be
+	    Path file = find(name, importer);
+	    if (file == null) {
+		System.err.println(importer + ": the import " + name + " was not found");
+		continue;
+	    }
+
+	    if (!visited.add(file.toRealPath()))
+		continue;
+
+	    ParsedUnit imported = parse(file, parser);
+	    collectImports(imported.path, imported.tree.importDirective(), visited, parser, imports);
+	    imports.add(imported);
+	}
+    }
+
+    private Path find(String name, Path importer) {
+	List<Path> candidates = new ArrayList<>();
+
+	if (name.startsWith("./") || name.startsWith("../"))
+	    candidates.add(importer.resolveSibling(name));
+	else {
+	    candidates.add(Paths.get(name));
+	    for (Path includePath: includePaths)
+		candidates.add(includePath.resolve(name));
+	}
+
+	for (Path candidate: candidates)
+	    if (Files.isRegularFile(candidate))
+		return candidate.normalize();
+
+	return null;
+    }
+
+    private static String hash(byte[] content) {
+	try {
+	    StringBuilder hash = new StringBuilder();
+	    for (byte b: MessageDigest.getInstance("SHA-256").digest(content))
+		hash.append(String.format("%02x", b));
+
+	    return hash.toString();
+	}
+	catch (NoSuchAlgorithmException e) { // Every Java platform has SHA-256
+	    throw new IllegalStateException(e);
+	}
+    }
+}
+
+// A parsed Solidity file. The parse tree is only read by the translations, so it can be shared by several threads.
+class ParsedUnit {
+    final Path path;
+    final String hash;
+    final SolidityParser.SourceUnitContext tree;
+
+    ParsedUnit(Path path, String hash, SolidityParser.SourceUnitContext tree) {
+	this.path = path;
+	this.hash = hash;
+	this.tree = tree;
+    }
+}
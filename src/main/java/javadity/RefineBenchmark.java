@@ -0,0 +1,96 @@
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+// Compares the cost of the refinement done by SymbolSolver when the unit is parsed again before every pass (the old behaviour)
+// and when all the passes share the same AST.
+// Usage: java -cp javadity.jar RefineBenchmark [file.sol] [iterations]
+// Without a file, a source unit with a lot of contracts is generated.
+
+public class RefineBenchmark {
+    private static final int GENERATED_CONTRACTS = 60;
+
+    // A contract using all the constructs that the refinement passes rewrite (array accesses, mappings, transfers and keccak256)
+    private static final String TEMPLATE =
+	"contract Bank%d {\n" +
+	"    address owner;\n" +
+	"    uint total;\n" +
+	"    mapping(address => uint) balances;\n" +
+	"    uint[16] history;\n" +
+	"\n" +
+	"    constructor() public {\n" +
+	"        owner = msg.sender;\n" +
+	"    }\n" +
+	"\n" +
+	"    function deposit() public payable {\n" +
+	"        balances[msg.sender] = balances[msg.sender] + msg.value;\n" +
+	"        total = total + msg.value;\n" +
+	"        history[3] = msg.value;\n" +
+	"    }\n" +
+	"\n" +
+	"    function withdraw(uint amount) public {\n" +
+	"        require(balances[msg.sender] >= amount);\n" +
+	"        balances[msg.sender] = balances[msg.sender] - amount;\n" +
+	"        total = total - amount;\n" +
+	"        msg.sender.transfer(amount);\n" +
+	"        history[5] = keccak256(amount);\n" +
+	"    }\n" +
+	"\n" +
+	"    function balanceOf(address a) public view returns (uint r) {\n" +
+	"        return balances[a] + history[1] + history[2];\n" +
+	"    }\n" +
+	"}\n\n";
+
+    public static void main(String[] args) throws Exception {
+	String source;
+	if (args.length > 0)
+	    source = new String(Files.readAllBytes(Paths.get(args[0])));
+	else
+	    source = generate(GENERATED_CONTRACTS);
+
+	int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+	CharStream input = CharStreams.fromString(source);
+	SolidityParser parser = new SolidityParser(new CommonTokenStream(new SolidityLexer(input)));
+	ParseTree tree = parser.sourceUnit();
+	CompilationUnit cu = (CompilationUnit) new TranslateVisitor().visit(tree);
+
+	// Build the type solver and warm up the JIT before measuring anything
+	for (int i = 0; i < 3; i++) {
+	    SymbolSolver.refineTranslation(cu.clone(), null, true);
+	    SymbolSolver.refineTranslation(cu.clone(), null, false);
+	}
+
+	System.out.println("Refining " + source.length() + " characters, " + iterations + " iterations");
+	measure("reparse before each pass", cu, true, iterations);
+	measure("single parse", cu, false, iterations);
+    }
+
+    private static void measure(String name, CompilationUnit cu, boolean reparseEachPass, int iterations) {
+	com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	long thread = Thread.currentThread().getId();
+
+	long bytes = bean.getThreadAllocatedBytes(thread);
+	long start = System.nanoTime();
+
+	for (int i = 0; i < iterations; i++)
+	    SymbolSolver.refineTranslation(cu.clone(), null, reparseEachPass);
+
+	long time = (System.nanoTime() - start) / iterations;
+	bytes = (bean.getThreadAllocatedBytes(thread) - bytes) / iterations;
+
+	System.out.printf("%-26s %10.2f ms/op %10.2f MB/op%n", name, time / 1e6, bytes / (1024.0 * 1024.0));
+    }
+
+    static String generate(int contracts) {
+	StringBuilder source = new StringBuilder("pragma solidity ^0.4.24;\n\n");
+	for (int i = 0; i < contracts; i++)
+	    source.append(String.format(TEMPLATE, i));
+
+	return source.toString();
+    }
+}
@@ -2,6 +2,9 @@ import java.io.File;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
@@ -9,9 +12,13 @@ import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.*;
 import com.github.javaparser.ast.body.*;
 import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.nodeTypes.NodeWithOptionalScope;
+import com.github.javaparser.ast.nodeTypes.NodeWithScope;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
 import com.github.javaparser.ast.type.*;
 import com.github.javaparser.resolution.types.ResolvedType;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
 import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
@@ -22,124 +29,437 @@ import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeS
 
 public class SymbolSolver {
     public static final String ADDRESS_TYPE = "blockchain.types.Address";
-    public static final String UINT_TYPE = "blockchain.types.Uint256Int";
+    public static final String MAPPING_TYPE = "blockchain." + Helper.MAPPING;
     public static final List<String> UNINITIALIZED_VARIABLES = Arrays.asList(new String[] {"msg", "tx", "block"}); // List of variables that must not be initialized
 
+    // The refinement passes, in the order in which they are applied to the compilation unit
+    private static final List<RefinementPass> PASSES = Arrays.asList(new RefinementPass[] {
+	    new RefinementPass("correctMappingAccess", true, true, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::correctMappingAccess),
+	    new RefinementPass("correctArrayAccess", true, true, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::correctArrayAccess),
+	    new RefinementPass("setArrayDimensions", false, false, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::setArrayDimensions),
+	    new RefinementPass("correctAddressTransferMethod", true, true, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::correctAddressTransferMethod),
+	    new RefinementPass("setDefaultValue", false, false, RefinementPass.Invalidates.NOTHING, SymbolSolver::setDefaultValue),
+	    new RefinementPass("crypto", false, true, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::crypto),
+	    new RefinementPass("journalStateWrites", false, false, RefinementPass.Invalidates.REWRITTEN_NODES, SymbolSolver::journalStateWrites)
+	});
+
+    // The type solver is expensive to build (it indexes the whole jar), so it is built once and shared
+    private static CombinedTypeSolver typeSolver;
+
+    // The caches of the symbol solver are not thread safe, the passes that resolve types are run under this lock
+    // (several files can be refined at the same time, the other passes run concurrently)
+    private static final Object RESOLUTION_LOCK = new Object();
+
+    private static final String PARSE_PASS = "parse";
+
     // Add a default value to all the non-primitive, non-initialized variables (the goal is to have a behaviour as close as in Solidity)
-    private static void setDefaultValue(CompilationUnit cu) {
-	List<VariableDeclarator> nodeList = cu.findAll(VariableDeclarator.class);
+    private static int setDefaultValue(Node root) {
+	List<VariableDeclarator> nodeList = root.findAll(VariableDeclarator.class);
 	Collections.reverse(nodeList);
-	nodeList.stream()
-	    .filter(elt -> !UNINITIALIZED_VARIABLES.contains(elt.getNameAsString()))
-	    .forEach(vd -> {
-		Type type = vd.getType();
+	int rewritten = 0;
+	for (VariableDeclarator vd: nodeList) {
+	    if (UNINITIALIZED_VARIABLES.contains(vd.getNameAsString()))
+		continue;
+
+	    Type type = vd.getType();
 
-		if (type.asString().equals("Uint256"))
-		    type = Helper.getUintTypeIntImplem();
+	    if (type.asString().equals("Uint256"))
+		type = Helper.getUintTypeIntImplem();
 
 
-		// If there is no initialization for a non-primitive type, add a default one
-		if (!vd.getInitializer().isPresent() && !type.isPrimitiveType()) {
-		    ClassOrInterfaceType clazz = new ClassOrInterfaceType(null, type.toString());
+	    // If there is no initialization for a non-primitive type, add a default one (the addresses are interned, the default one is Address.ZERO)
+	    if (!vd.getInitializer().isPresent() && !type.isPrimitiveType()) {
+		ClassOrInterfaceType clazz = new ClassOrInterfaceType(null, type.toString());
 
+		if (type.asString().equals("Address"))
+		    vd.setInitializer(Helper.getAddressZero());
+		else
 		    vd.setInitializer(new ObjectCreationExpr(null, clazz, new NodeList<Expression>()));
-		}
-	    });
+		rewritten++;
+	    }
+	}
+	return rewritten;
     }
 
     // The transfer method in Solidity takes several implicit arguments (the block variable, the transaction variable etc...) and we need to make this explicit in Java
     // Note that a transfer in Solidity is an external call the the fallback function of the recipient
-    private static void correctAddressTransferMethod(CompilationUnit cu) {
-	List<MethodCallExpr> nodeList = cu.findAll(MethodCallExpr.class);
+    private static int correctAddressTransferMethod(Node root) {
+	List<MethodCallExpr> nodeList = root.findAll(MethodCallExpr.class);
 	Collections.reverse(nodeList);
-	nodeList.forEach(mce -> {
-		if (mce.getScope().isPresent()) { // If the method call has a scope...
-		    Expression scope = mce.getScope().get();
-		    ResolvedType resolvedTypeScope = scope.calculateResolvedType();
-
-		    // If this scope is an Address and it is a call the method transfer
-		    if (resolvedTypeScope.describe().equals(ADDRESS_TYPE) && mce.getNameAsString().equals("transfer")) {
-			NodeList<Expression> transferArgs = mce.getArguments();
-			transferArgs.add(new ThisExpr());
-			transferArgs.add(new NameExpr("block"));
-			transferArgs.add(new NameExpr("tx"));
-		    }
+	int rewritten = 0;
+	for (MethodCallExpr mce: nodeList) {
+	    // Only the scopes of the calls to transfer are resolved
+	    if (mce.getScope().isPresent() && mce.getNameAsString().equals("transfer")) { // If the method call has a scope...
+		Expression scope = mce.getScope().get();
+		ResolvedType resolvedTypeScope = scope.calculateResolvedType();
+
+		// If this scope is an Address and it is a call the method transfer
+		if (resolvedTypeScope.describe().equals(ADDRESS_TYPE)) {
+		    NodeList<Expression> transferArgs = mce.getArguments();
+		    transferArgs.add(new ThisExpr());
+		    transferArgs.add(new NameExpr("block"));
+		    transferArgs.add(new NameExpr("tx"));
+		    rewritten++;
 		}
-	    });
+	    }
+	}
+	return rewritten;
+    }
+
+    // A mapping is translated into a blockchain.Mapping, the visitor translates its accesses as array accesses since it does not know the
+    // type of the accessed expression: m[k] is rewritten into m.get(k), and m[k] = v into m.set(k, v). The innermost accesses are
+    // rewritten first, so that the type of m[a] in m[a][b] is the type of the values of m.
+    private static int correctMappingAccess(Node root) {
+	List<ArrayAccessExpr> nodeList = root.findAll(ArrayAccessExpr.class);
+	Collections.reverse(nodeList);
+	int rewritten = 0;
+	for (ArrayAccessExpr aae: nodeList) {
+	    ResolvedType resolvedType = aae.getName().calculateResolvedType();
+	    if (!resolvedType.isReferenceType() || !resolvedType.asReferenceType().getQualifiedName().equals(MAPPING_TYPE))
+		continue;
+
+	    Expression mapping = aae.getName();
+	    Expression key = aae.getIndex();
+	    Node parent = aae.getParentNode().orElse(null);
+
+	    // The access is replaced before the mapping and the key are moved into the call (see moveInto)
+	    MethodCallExpr call;
+	    if (parent instanceof AssignExpr && ((AssignExpr) parent).getTarget() == aae) {
+		Expression value = ((AssignExpr) parent).getValue();
+		call = new MethodCallExpr(null, "set", new NodeList<Expression>());
+		parent.replace(call);
+		call.setArguments(NodeList.nodeList(key, value));
+	    }
+	    else {
+		call = new MethodCallExpr(null, "get", new NodeList<Expression>());
+		aae.replace(call);
+		call.setArguments(NodeList.nodeList(key));
+	    }
+	    call.setScope(mapping);
+
+	    rewritten++;
+	}
+	return rewritten;
     }
 
-    // The index of an array access can be an Address or an Uint256 once the visitor made the translation, we need to convert these values to integers
-    private static void correctArrayAccess(CompilationUnit cu) {
-	List<ArrayAccessExpr> nodeList = cu.findAll(ArrayAccessExpr.class);
+    // The index of an array access is an Uint256 once the visitor made the translation, we need to convert it to an int
+    // (the keys of the mappings, which can be addresses, are not converted, see correctMappingAccess)
+    private static int correctArrayAccess(Node root) {
+	List<ArrayAccessExpr> nodeList = root.findAll(ArrayAccessExpr.class);
 	Collections.reverse(nodeList);
-	nodeList.forEach(aae -> {
-		Expression expr = aae.getIndex();
-		ResolvedType resolvedTypeExpr;
-		resolvedTypeExpr = expr.calculateResolvedType();
+	int rewritten = 0;
+	for (ArrayAccessExpr aae: nodeList) {
+	    Expression expr = aae.getIndex();
+	    ResolvedType resolvedTypeExpr;
+	    resolvedTypeExpr = expr.calculateResolvedType();
 
-		if (resolvedTypeExpr.describe().equals(UINT_TYPE))
-		    aae.setIndex(new MethodCallExpr(expr, "asInt", new NodeList<Expression>()));
-		else if (resolvedTypeExpr.describe().equals(ADDRESS_TYPE))
-		    aae.setIndex(new FieldAccessExpr(expr, "ID"));
-	    });
+	    if (resolvedTypeExpr.describe().equals(Helper.UINT_PACKAGE + "." + Helper.getUintImplementation()))
+		moveInto(expr, new MethodCallExpr(null, "asInt", new NodeList<Expression>()));
+	    else
+		continue;
+	    rewritten++;
+	}
+	return rewritten;
     }
 
     // Array initialization in Solidity and in Java does not work the same way leading to a incorrect translation of the visitor
     // (when translating a declaration into Java, the initial size is omitted by the visitor)
-    private static void setArrayDimensions(CompilationUnit cu) {
-	List<ArrayCreationLevel> nodeList = cu.findAll(ArrayCreationLevel.class);
+    private static int setArrayDimensions(Node root) {
+	List<ArrayCreationLevel> nodeList = root.findAll(ArrayCreationLevel.class);
 	Collections.reverse(nodeList);
-	nodeList.forEach(acl -> {
-		if (acl.getDimension().isPresent()) {
-		    Expression dim = acl.getDimension().get();
+	int rewritten = 0;
+	for (ArrayCreationLevel acl: nodeList) {
+	    if (acl.getDimension().isPresent()) {
+		Expression dim = acl.getDimension().get();
 
-		    acl.setDimension(new MethodCallExpr(dim, "asInt", new NodeList<Expression>()));
-		}
-	    });
+		moveInto(dim, new MethodCallExpr(null, "asInt", new NodeList<Expression>()));
+		rewritten++;
+	    }
+	}
+	return rewritten;
     }
 
     // The keccak function in Java is in a file Crypto.java, thus all call keccak256(expr) must be translated in Crypto.keccak(expr)
-    private static void crypto(CompilationUnit cu) {
-	List<MethodCallExpr> nodeList = cu.findAll(MethodCallExpr.class);
+    private static int crypto(Node root) {
+	List<MethodCallExpr> nodeList = root.findAll(MethodCallExpr.class);
 	Collections.reverse(nodeList);
-	nodeList.stream()
-	    .filter(mce -> mce.getName().asString().equals("keccak256"))
-	    .forEach(mce -> mce.setScope(new NameExpr("Crypto")));
+	int rewritten = 0;
+	for (MethodCallExpr mce: nodeList) {
+	    if (mce.getName().asString().equals("keccak256")) {
+		mce.setScope(new NameExpr("Crypto"));
+		rewritten++;
+	    }
+	}
+	return rewritten;
     }
 
-    public static CompilationUnit refineTranslation(CompilationUnit cu) {
-	TypeSolver javaParserTypeSolver = null;
-	try {
-	    javaParserTypeSolver = new JarTypeSolver(SymbolSolver.class.getProtectionDomain().getCodeSource().getLocation().toURI().getPath());
+    // The writes to the state are recorded in the Journal, so that the writes of a call that fails are reverted (see blockchain.Journal):
+    // x = v is rewritten into x = Journal.write(this, "x", x, v) for a state variable, s.f = v into s.f = Journal.write(s, "f", s.f, v)
+    // for a field of a struct, and a[i] = v into a[i] = Journal.writeElement(a, i, a[i], v). The mappings record their own writes.
+    // The array, the index and the struct are repeated in the call, so when one of them is not a name or a literal (a call, which
+    // would be made several times), the whole assignment is rewritten into a call that evaluates it once:
+    // Journal.assignElement(a, i, v), or Journal.assign(s, "f", journaled -> journaled.f, (journaled, written) -> journaled.f = written, v).
+    // This pass runs last, once the accesses to the mappings are calls to set and the indexes of the arrays are ints.
+    private static int journalStateWrites(Node root) {
+	List<AssignExpr> nodeList = root.findAll(AssignExpr.class);
+	int rewritten = 0;
+	for (AssignExpr assign: nodeList) {
+	    CallableDeclaration<?> callable = assign.getAncestorOfType(CallableDeclaration.class).orElse(null);
+	    if (callable == null || callable.getNameAsString().equals(Helper.RESTORE) || assign.getAncestorOfType(LambdaExpr.class).isPresent())
+		continue;
+
+	    // The visitor translates a.f and a[i].f into dotted NameExpr, they are only FieldAccessExpr if the unit was parsed again
+	    Expression target = assign.getTarget();
+	    if (target.isNameExpr() && !target.asNameExpr().getNameAsString().chars().allMatch(Character::isJavaIdentifierPart))
+		target = JavaParser.parseExpression(target.asNameExpr().getNameAsString());
+
+	    NodeList<Expression> arguments;
+	    String method;
+
+	    if (target.isArrayAccessExpr()) {
+		ArrayAccessExpr element = target.asArrayAccessExpr();
+		if (isRepeatable(element.getName()) && isRepeatable(element.getIndex())) {
+		    arguments = NodeList.nodeList(element.getName().clone(), element.getIndex().clone(), element.clone());
+		    method = "writeElement";
+		}
+		else {
+		    arguments = NodeList.nodeList(element.getName().clone(), element.getIndex().clone());
+		    method = "assignElement";
+		}
+	    }
+	    else {
+		Expression object;
+		String field;
+		if (target.isFieldAccessExpr()) {
+		    object = target.asFieldAccessExpr().getScope().clone();
+		    field = target.asFieldAccessExpr().getNameAsString();
+		}
+		else if (target.isNameExpr()) {
+		    object = new ThisExpr();
+		    field = target.asNameExpr().getNameAsString();
+		    if (Helper.ENVIRONMENT_VARIABLES.contains(field) || isLocal(callable, field))
+			continue;
+		}
+		else
+		    continue;
+
+		// The fields of a struct created by the method (the struct constructors) are not part of the state yet
+		if (object.isNameExpr() && isCreatedBy(callable, object.asNameExpr().getNameAsString()))
+		    continue;
+
+		if (isRepeatable(object)) {
+		    arguments = NodeList.nodeList(object, new StringLiteralExpr(field), target.clone());
+		    method = "write";
+		}
+		else {
+		    Parameter journaled = new Parameter(new UnknownType(), "journaled");
+		    Parameter written = new Parameter(new UnknownType(), "written");
+		    FieldAccessExpr access = new FieldAccessExpr(new NameExpr(journaled.getName()), field);
+		    LambdaExpr read = new LambdaExpr(NodeList.nodeList(journaled), new ExpressionStmt(access), false);
+		    LambdaExpr store = new LambdaExpr(NodeList.nodeList(journaled.clone(), written),
+						      new ExpressionStmt(new AssignExpr(access.clone(), new NameExpr(written.getName()), AssignExpr.Operator.ASSIGN)), true);
+		    arguments = NodeList.nodeList(object, new StringLiteralExpr(field), read, store);
+		    method = "assign";
+		}
+	    }
+
+	    // The value is moved into the call, as in moveInto
+	    Expression value = assign.getValue();
+	    MethodCallExpr write = new MethodCallExpr(new NameExpr(Helper.JOURNAL), method, arguments);
+	    if (method.startsWith("assign"))
+		assign.replace(write);
+	    else
+		value.replace(write);
+	    write.addArgument(value);
+	    rewritten++;
 	}
-	catch (Exception e) {
-	    System.out.println(e);
-	    System.exit(1);
+	return rewritten;
+    }
+
+    // Whether the expression can be evaluated several times, with the same value and without side effects
+    private static boolean isRepeatable(Expression expr) {
+	if (expr.isFieldAccessExpr())
+	    return isRepeatable(expr.asFieldAccessExpr().getScope());
+
+	return expr.isNameExpr() || expr.isLiteralExpr() || expr.isThisExpr();
+    }
+
+    // Whether name is a parameter or a local variable of the method (the Solidity locals are visible in the whole function)
+    private static boolean isLocal(CallableDeclaration<?> callable, String name) {
+	return callable.getParameters().stream().anyMatch(elt -> elt.getNameAsString().equals(name))
+	    || callable.findAll(VariableDeclarator.class).stream().anyMatch(elt -> elt.getNameAsString().equals(name));
+    }
+
+    // Whether name is a local variable of the method initialized with a new object, that it never assigns again
+    private static boolean isCreatedBy(CallableDeclaration<?> callable, String name) {
+	boolean created = callable.findAll(VariableDeclarator.class).stream()
+	    .anyMatch(elt -> elt.getNameAsString().equals(name) && elt.getInitializer().map(Expression::isObjectCreationExpr).orElse(false));
+	boolean assigned = callable.findAll(AssignExpr.class).stream()
+	    .anyMatch(elt -> elt.getTarget().isNameExpr() && elt.getTarget().asNameExpr().getNameAsString().equals(name));
+
+	return created && !assigned;
+    }
+
+    // Replaces expr by wrapper in the AST and makes expr the scope of wrapper. The expression is moved and not copied,
+    // so that the types that were already resolved in it stay valid (this is why the wrapper is inserted before setting its scope:
+    // setting the index of an array access to a node whose scope is the old index would detach the old index from the unit)
+    private static void moveInto(Expression expr, Expression wrapper) {
+	expr.replace(wrapper);
+
+	if (wrapper instanceof NodeWithOptionalScope)
+	    ((NodeWithOptionalScope<?>) wrapper).setScope(expr);
+	else
+	    ((NodeWithScope<?>) wrapper).setScope(expr);
+
+    }
+
+    // Returns the type solver used to resolve the types of the translation (the jar containing the blockchain classes, and the JDK).
+    // When the translator runs from its classes rather than from its jar (the tests), the blockchain classes are found by reflection.
+    public static synchronized TypeSolver getTypeSolver() {
+	if (typeSolver == null) {
+	    TypeSolver javaParserTypeSolver = null;
+	    try {
+		File location = new File(SymbolSolver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		if (location.isDirectory())
+		    javaParserTypeSolver = new ReflectionTypeSolver(false);
+		else
+		    javaParserTypeSolver = new JarTypeSolver(location.getPath());
+	    }
+	    catch (Exception e) {
+		System.out.println(e);
+		System.exit(1);
+	    }
+	    TypeSolver reflectionTypeSolver = new ReflectionTypeSolver();
+
+	    CombinedTypeSolver combined = new CombinedTypeSolver();
+	    combined.add(javaParserTypeSolver);
+	    combined.add(reflectionTypeSolver);
+
+	    typeSolver = combined;
+	    JavaParser.getStaticConfiguration().setSymbolResolver(new JavaSymbolSolver(typeSolver));
 	}
-	TypeSolver reflectionTypeSolver = new ReflectionTypeSolver();
 
-	CombinedTypeSolver combined = new CombinedTypeSolver();
-	combined.add(javaParserTypeSolver);
-	combined.add(reflectionTypeSolver);
+	return typeSolver;
+    }
+
+    public static CompilationUnit refineTranslation(CompilationUnit cu) {
+	return refineTranslation(cu, null, false);
+    }
+
+    // Only refines the types of the unit whose name is in typeNames, the other types are already refined
+    // (they are in the unit since the refined types may need them to resolve their own types)
+    public static CompilationUnit refineTranslation(CompilationUnit cu, Set<String> typeNames) {
+	return refineTranslation(cu, typeNames, false);
+    }
+
+    // Applies all the refinement passes to the translation. The unit produced by the visitor has no symbol resolver attached
+    // (and some of its names are dotted NameExpr), so it is parsed once, then every pass works on the same resolved AST.
+    // A new parse is only done before a pass that resolves types, and only if a previous pass declared that it invalidated the whole unit;
+    // the passes that rewrite some nodes do not need it since the nodes they create are resolved lazily the first time a later pass asks for their type.
+    // If reparseEachPass is true, the unit is parsed again before every pass (this is how the refinement used to work, it is kept for benchmarking).
+    static CompilationUnit refineTranslation(CompilationUnit cu, Set<String> typeNames, boolean reparseEachPass) {
+	return refineTranslation(cu, typeNames, reparseEachPass, null);
+    }
 
-	JavaSymbolSolver symbolSolver = new JavaSymbolSolver(combined);
-	JavaParser.getStaticConfiguration().setSymbolResolver(symbolSolver);
+    // The time, the memory and the number of nodes rewritten by each pass are recorded in metrics (if it is not null),
+    // the parsings of the unit are recorded as a pass named "parse".
+    // If the types of the unit were inferred by the TranslateVisitor, the passes it already did are only applied to the contracts
+    // whose types could not be inferred; when there is none, the unit is neither parsed nor resolved.
+    static CompilationUnit refineTranslation(CompilationUnit cu, Set<String> typeNames, boolean reparseEachPass, TranslationMetrics metrics) {
+	Set<String> untypedNames = typeNames;
+	if (cu.containsData(TypeEnvironment.UNTYPED_CONTRACTS)) {
+	    untypedNames = new HashSet<>(cu.getData(TypeEnvironment.UNTYPED_CONTRACTS));
+	    if (typeNames != null)
+		untypedNames.retainAll(typeNames);
+	}
+	boolean resolves = untypedNames == null || !untypedNames.isEmpty();
 
-	cu = JavaParser.parse(cu.toString());
-	correctArrayAccess(cu);
+	TranslationMetrics.Sample time = metrics != null ? new TranslationMetrics.Sample() : null;
 
-	cu = JavaParser.parse(cu.toString());
-	setArrayDimensions(cu);
+	if (resolves || reparseEachPass) {
+	    getTypeSolver();
 
-	cu = JavaParser.parse(cu.toString());
-	correctAddressTransferMethod(cu);
+	    cu = JavaParser.parse(cu.toString());
+	    if (metrics != null)
+		time = metrics.recordPass(PARSE_PASS, time, 0);
+	}
 
-	cu = JavaParser.parse(cu.toString());
-	setDefaultValue(cu);
+	boolean invalidated = false;
+	for (RefinementPass pass: PASSES) {
+	    if (reparseEachPass || (resolves && invalidated && pass.resolvesTypes)) {
+		cu = JavaParser.parse(cu.toString());
+		synchronized (RESOLUTION_LOCK) {
+		    JavaParserFacade.clearInstances();
+		}
+		invalidated = false;
 
-	cu = JavaParser.parse(cu.toString());
-	crypto(cu);
+		if (metrics != null)
+		    time = metrics.recordPass(PARSE_PASS, time, 0);
+	    }
+
+	    Set<String> names = pass.inferredByVisitor ? untypedNames : typeNames;
+
+	    int rewritten;
+	    if (names != null && names.isEmpty())
+		rewritten = 0;
+	    else if (pass.resolvesTypes) {
+		synchronized (RESOLUTION_LOCK) {
+		    rewritten = apply(pass, cu, names);
+		}
+	    }
+	    else
+		rewritten = apply(pass, cu, names);
+
+	    if (rewritten > 0 && pass.invalidates == RefinementPass.Invalidates.WHOLE_UNIT)
+		invalidated = true;
+
+	    if (metrics != null)
+		time = metrics.recordPass(pass.name, time, rewritten);
+	}
 
 	return cu;
     }
+
+    private static int apply(RefinementPass pass, CompilationUnit cu, Set<String> typeNames) {
+	if (typeNames == null)
+	    return pass.apply(cu);
+
+	int rewritten = 0;
+	for (TypeDeclaration<?> type: cu.getTypes())
+	    if (typeNames.contains(type.getNameAsString()))
+		rewritten += pass.apply(type);
+
+	return rewritten;
+    }
 }
+
+// A rewriting of the Java AST done by the SymbolSolver. Each pass declares if it needs the types of the
+// expressions and what its rewritings invalidate, so that the SymbolSolver only parses the unit again when it is necessary,
+// and if the TranslateVisitor does the rewriting itself when it infers the types.
+class RefinementPass {
+    enum Invalidates {
+	NOTHING, // The pass only adds nodes that no resolution depends on
+	REWRITTEN_NODES, // The pass replaces some nodes by new ones, the types of the other nodes are not changed
+	WHOLE_UNIT // The pass changes the unit in a way that requires to parse it again before resolving anything
+    }
+
+    final String name;
+    final boolean resolvesTypes;
+    final boolean inferredByVisitor;
+    final Invalidates invalidates;
+    private final ToIntFunction<Node> rewrite;
+
+    RefinementPass(String name, boolean resolvesTypes, boolean inferredByVisitor, Invalidates invalidates, ToIntFunction<Node> rewrite) {
+	this.name = name;
+	this.resolvesTypes = resolvesTypes;
+	this.inferredByVisitor = inferredByVisitor;
+	this.invalidates = invalidates;
+	this.rewrite = rewrite;
+    }
+
+    // Applies the pass to the subtree rooted in root and returns the number of nodes that were rewritten
+    int apply(Node root) {
+	return rewrite.applyAsInt(root);
+    }
+}
+
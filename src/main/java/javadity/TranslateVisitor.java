@@ -7,12 +7,17 @@ import com.github.javaparser.ast.modules.*;
 
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.Trees;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Collections;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.*;
 import java.lang.RuntimeException;
@@ -23,46 +28,154 @@ import java.lang.RuntimeException;
 /***********************/
 
 public class TranslateVisitor extends SolidityBaseVisitor<Node> {
-    // Array containing all the necessary imports
-    private static final String[] imports = {"blockchain.Block", "blockchain.Message", "blockchain.Transaction",
-					     "blockchain.types.Address", "blockchain.types.Uint256", "blockchain.types.Uint256Int", "blockchain.types.Crypto"};
+    // Array containing all the necessary imports (and the implementation of Uint256, see Helper.getUintImplementation)
+    private static final String[] imports = {"blockchain.Block", "blockchain.Journal", "blockchain.Journaled", "blockchain.Mapping",
+					     "blockchain.Message", "blockchain.Transaction",
+					     "blockchain.types.Address", "blockchain.types.Uint256", "blockchain.types.Crypto"};
 
     // The string containing the name of the type Uint256
     private static final String UINT = Helper.UINT;
 
-    // Name of the current contract (we need it to create the constructor of the contract)
-    private String currentContractName;
+    // The state of the translation of the current contract. Each contract of a source unit is translated by its own visitor,
+    // so that several contracts can be translated at the same time.
+    private final ContractContext contract;
 
-    // Mapping that keeps track of the type of some identifiers
-    private HashMap<String, String> typesMap;
+    // If true, the contracts of a source unit are translated in parallel
+    private boolean parallelContracts = false;
 
-    // List that stores the constructors of the structs
-    private ArrayList<MethodDeclaration> structConstructors = new ArrayList<>();
+    // If true, the types of the expressions are inferred from the Solidity declarations (see TypeEnvironment)
+    private boolean inferTypes = false;
+
+    // The source units imported by the translated unit (see ImportResolver)
+    private List<SolidityParser.SourceUnitContext> importedUnits = Collections.emptyList();
+
+    // The modifiers visible from the next contract, when a source unit is translated one contract at a time (see translateNextContract)
+    private final HashMap<String, SolidityModifier> visibleModifiers = new HashMap<>();
+
+    public TranslateVisitor() {
+	this(new ContractContext(new HashMap<>()));
+    }
+
+    TranslateVisitor(ContractContext contract) {
+	this.contract = contract;
+    }
+
+    public void setParallelContracts(boolean parallelContracts) {
+	this.parallelContracts = parallelContracts;
+    }
 
-    // Mapping from the name of a modifier to the Solidity AST of this modifier
-    private HashMap<String, SolidityModifier> modifiersMap = new HashMap<>();
+    // When the types are inferred, the visitor emits the conversions of the array indexes, the arguments of the transfers and the
+    // scope of keccak256 itself, and the SymbolSolver does not need to resolve the types of the unit. A contract for which a type
+    // can not be inferred is translated again without inference, its name is in the data TypeEnvironment.UNTYPED_CONTRACTS of the unit.
+    public void setInferTypes(boolean inferTypes) {
+	this.inferTypes = inferTypes;
+    }
+
+    // The contracts of the imported units are not translated, but their modifiers are visible from the contracts of the unit
+    public void setImportedUnits(List<SolidityParser.SourceUnitContext> importedUnits) {
+	this.importedUnits = importedUnits;
+    }
     
     @Override
     public Node visitSourceUnit(SolidityParser.SourceUnitContext ctx) {
+	return translateSourceUnit(ctx, elt -> true);
+    }
 
-	// Create import declarations (import classes to simulate Solidity behaviour like Uint256 or Address)
+    // Translates the contracts of the source unit that are accepted by the filter. The other contracts are only declared:
+    // they are not translated but their modifiers are recorded, since the next contracts may use them.
+    CompilationUnit translateSourceUnit(SolidityParser.SourceUnitContext ctx, Predicate<SolidityParser.ContractDefinitionContext> filter) {
+	// Create the context of each contract to translate. The modifiers of a contract are visible from all the next contracts,
+	// so each context gets the modifiers recorded up to its contract.
+	HashMap<String, SolidityModifier> modifiers = new HashMap<>();
+	List<SolidityParser.ContractDefinitionContext> contracts = new ArrayList<>();
+	List<ContractContext> contexts = new ArrayList<>();
+
+	for (SolidityParser.SourceUnitContext unit: importedUnits)
+	    for (SolidityParser.ContractDefinitionContext definition: unit.contractDefinition())
+		recordModifiers(definition.contractPart(), modifiers);
+
+	for (SolidityParser.ContractDefinitionContext definition: ctx.contractDefinition()) {
+	    recordModifiers(definition.contractPart(), modifiers);
+
+	    if (filter.test(definition)) {
+		contracts.add(definition);
+		contexts.add(newContractContext(modifiers));
+	    }
+	}
+
+	return translateContracts(contracts, contexts);
+    }
+
+    // Records the modifiers of a unit imported by a source unit translated one contract at a time, they are visible from the next contracts
+    void recordImportedUnit(SolidityParser.SourceUnitContext unit) {
+	for (SolidityParser.ContractDefinitionContext definition: unit.contractDefinition())
+	    recordModifiers(definition.contractPart(), visibleModifiers);
+    }
+
+    // Translates the next contract of a source unit that is translated one contract at a time, into a unit of its own.
+    // The definitions of its modifiers are detached from it, so that its parse tree can be released once it is translated.
+    CompilationUnit translateNextContract(SolidityParser.ContractDefinitionContext definition) {
+	recordModifiers(definition.contractPart(), visibleModifiers);
+
+	for (SolidityParser.ContractPartContext part: definition.contractPart())
+	    if (part.modifierDefinition() != null)
+		part.modifierDefinition().parent = null;
+
+	return translateContracts(Collections.singletonList(definition), Collections.singletonList(newContractContext(visibleModifiers)));
+    }
+
+    // The import declarations of a translation (import classes to simulate Solidity behaviour like Uint256 or Address)
+    static NodeList<ImportDeclaration> getImportDeclarations() {
 	NodeList<ImportDeclaration> importDeclarations = new NodeList<>();
 	for (String importDeclaration: imports)
 	    importDeclarations.add(new ImportDeclaration(importDeclaration, false, false));
+	importDeclarations.add(importDeclarations.size() - 1, new ImportDeclaration(Helper.UINT_PACKAGE + "." + Helper.getUintImplementation(), false, false));
 
+	return importDeclarations;
+    }
 
-	// Add all the contracts the list of contracts
-	NodeList contractsList = new NodeList(ctx.contractDefinition().stream() // for all contracts...
-					      .map(elt -> this.visit(elt)) //..translate them in Java
-					      .collect(Collectors.toList())
-					      );
+    // The context of a contract, with the modifiers recorded up to the contract
+    private ContractContext newContractContext(HashMap<String, SolidityModifier> modifiers) {
+	ContractContext context = new ContractContext(new HashMap<>(modifiers));
+	if (inferTypes)
+	    context.types = new TypeEnvironment();
+
+	return context;
+    }
+
+    private CompilationUnit translateContracts(List<SolidityParser.ContractDefinitionContext> contracts, List<ContractContext> contexts) {
+	// Translate the contracts (the order of the stream is kept even if it is parallel)
+	IntStream indexes = IntStream.range(0, contracts.size());
+	NodeList contractsList = NodeList.nodeList((parallelContracts ? indexes.parallel() : indexes)
+						    .mapToObj(i -> translateContract(contracts.get(i), contexts.get(i)))
+						    .collect(Collectors.toList()));
 
 	// Add all the contracts to the compilation unit
-	CompilationUnit cu = new CompilationUnit(null, importDeclarations, contractsList, null);
+	CompilationUnit cu = new CompilationUnit(null, getImportDeclarations(), contractsList, null);
+
+	if (inferTypes) {
+	    Set<String> untyped = new HashSet<>();
+	    for (ContractContext context: contexts)
+		if (!context.types.isComplete())
+		    untyped.add(context.name);
+
+	    cu.setData(TypeEnvironment.UNTYPED_CONTRACTS, untyped);
+	}
 
 	return cu;
     }
 
+    // If a type of the contract can not be inferred, the contract is translated again as if the types were not inferred,
+    // since the conversions that were already emitted would be added a second time by the SymbolSolver
+    private static Node translateContract(SolidityParser.ContractDefinitionContext definition, ContractContext context) {
+	Node type = new TranslateVisitor(context).visit(definition);
+
+	if (context.types != null && !context.types.isComplete())
+	    type = new TranslateVisitor(new ContractContext(context.modifiers)).visit(definition);
+
+	return type;
+    }
+
     @Override
     public Node visitStructDefinition(SolidityParser.StructDefinitionContext ctx) {
 
@@ -92,6 +205,10 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 							       var));
 		});
 
+	// The writes of the fields are recorded in the Journal
+	type.addImplementedType(Helper.JOURNALED);
+	type.addMember(Helper.getRestore(type.getFields(), false));
+
 	// Add the parameters for the constructor
 	constructor.setParameters(parameters);
 
@@ -128,7 +245,7 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	constructor.setBody(new BlockStmt(body));
 
 	// Add the constructor to the list of constructor
-	structConstructors.add(constructor);
+	contract.structConstructors.add(constructor);
 
 
 	return type;
@@ -179,30 +296,19 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 
 	// Name of the contract
 	String id = ((SimpleName)this.visit(ctx.identifier())).asString();
-	currentContractName = id;
+	contract.name = id;
 
 	// Get all the parts of the contract
 	List<SolidityParser.ContractPartContext> contractPartList = ctx.contractPart();
 
 	// Get the mapping of names of contract part to their type
-	typesMap = getTypesMap(contractPartList);
+	contract.typesMap = getTypesMap(contractPartList);
 	
 	// Record all the user defined modifiers
-	contractPartList.stream()
-	    .map(elt -> elt.modifierDefinition())
-	    .filter(elt -> elt != null) // Only keep the definitions of a modifier
-	    .forEach(elt -> { // Put the modifiers in the mapping
-		    String name = elt.identifier().getText();
-		    ParserRuleContext code = elt.block();
-		    List<String> parameters = elt.parameterList().parameter().stream()
-			.map(e -> e.identifier().getText())
-			.collect(Collectors.toList());
-
-		    SolidityModifier modifier = new SolidityModifier(name, code, new ArrayList(parameters));
-
-		    modifiersMap.put(name, modifier);
-		});
+	recordModifiers(contractPartList, contract.modifiers);
 
+	if (contract.types != null)
+	    declareTypes(contractPartList);
 
 	// Create a new class representing the contract
 	ClassOrInterfaceDeclaration type = new ClassOrInterfaceDeclaration(EnumSet.of(Modifier.PUBLIC), false, id);
@@ -244,9 +350,12 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 		});
 
 	// Add the struct constructor
-	structConstructors.stream()
+	contract.structConstructors.stream()
 	    .forEach(elt -> type.addMember(elt));
-	structConstructors.clear();
+	contract.structConstructors.clear();
+
+	// The writes of the state variables are recorded in the Journal
+	type.addMember(Helper.getRestore(type.getFields(), true));
 
 	return type;
     }
@@ -274,37 +383,64 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	if (ctx.expression() != null)
 	    expr = (Expression) this.visit(ctx.expression());
 
-	// If is is an array or a mapping, initializes it
-	else if (type.isArrayType()) {
-	    Type t = type.clone();
-
-	    NodeList<ArrayCreationLevel> dimensions = new NodeList<>();
+	// If it is a mapping, creates it
+	else if (ctx.typeName().mapping() != null)
+	    expr = newMapping(ctx.typeName().mapping());
 
-	    SolidityParser.TypeNameContext typeContext = ctx.typeName();
+	// If it is an array, initializes it
+	else if (type.isArrayType())
+	    expr = newArray(type, ctx.typeName());
 
-	    // If it is a mapping...
-	    if (typeContext.mapping() != null) {
-		NodeList<Expression> size = NodeList.nodeList(new IntegerLiteralExpr(Helper.mappingSize));
-		dimensions.add(new ArrayCreationLevel(new ObjectCreationExpr(null, Helper.getUintType(), size)));;
-		t = t.asArrayType().getComponentType();
-	    }
 
-	    // If it is an array
-	    else {
-		// Get the dimensions
-		while (t.isArrayType()) {
-		    Expression dimension = (Expression) this.visit(typeContext.expression());
+	return new FieldDeclaration(modifiers, new VariableDeclarator(type, id, expr));
+    }
 
-		    dimensions.add(new ArrayCreationLevel(dimension));
-		    t =  t.asArrayType().getComponentType();
-		    typeContext = typeContext.typeName();
-		}
-	    }
-	    expr = new ArrayCreationExpr(t, dimensions, null);
+    // The creation of an array of a Solidity array type (a dynamic array is empty)
+    private Expression newArray(Type type, SolidityParser.TypeNameContext typeContext) {
+	Type t = type.clone();
+	NodeList<ArrayCreationLevel> dimensions = new NodeList<>();
+
+	// Get the dimensions
+	while (t.isArrayType()) {
+	    Expression dimension;
+	    if (typeContext.expression() != null)
+		dimension = (Expression) this.visit(typeContext.expression());
+	    else
+		dimension = new ObjectCreationExpr(null, Helper.getUintTypeIntImplem(), NodeList.nodeList(new IntegerLiteralExpr(0)));
+
+	    dimensions.add(new ArrayCreationLevel(dimension));
+	    t =  t.asArrayType().getComponentType();
+	    typeContext = typeContext.typeName();
 	}
 
+	return new ArrayCreationExpr(t, dimensions, null);
+    }
 
-	return new FieldDeclaration(modifiers, new VariableDeclarator(type, id, expr));
+    // The creation of a mapping (see blockchain.Mapping), with the zero value of the type of its values. The values that are modified
+    // in place (the structs, the mappings and the arrays) are created for each key, the other ones are shared by all the missing keys.
+    private Expression newMapping(SolidityParser.MappingContext ctx) {
+	SolidityParser.TypeNameContext valueContext = ctx.typeName();
+	Type value = (Type) this.visit(valueContext);
+	Expression zero;
+
+	if (valueContext.mapping() != null)
+	    return Helper.getNestedMapping(newMapping(valueContext.mapping()));
+	else if (value.isArrayType())
+	    return Helper.getNestedMapping(newArray(value, valueContext));
+	else if (value.isPrimitiveType()) // A boolean
+	    zero = new BooleanLiteralExpr(false);
+	else if (value.asString().equals(UINT))
+	    zero = new ObjectCreationExpr(null, Helper.getUintTypeIntImplem(), new NodeList<Expression>());
+	else if (value.asString().equals("Address"))
+	    zero = Helper.getAddressZero();
+	else if (value.asString().equals("String"))
+	    zero = new StringLiteralExpr("");
+	else if ("struct".equals(contract.typesMap.get(value.asString())))
+	    return Helper.getNestedMapping(new ObjectCreationExpr(null, value.asClassOrInterfaceType(), new NodeList<Expression>()));
+	else // A contract, there is no contract at the address zero
+	    zero = new NullLiteralExpr();
+
+	return Helper.getMapping(zero);
     }
 
     /* TYPE NAME */
@@ -344,7 +480,7 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	String type = String.join(".", identifiers);
 	
 	// Check if it is an enum
-	if (typesMap.containsKey(type) && typesMap.get(type).equals("enum"))
+	if (contract.typesMap.containsKey(type) && contract.typesMap.get(type).equals("enum"))
 	    type = UINT;
 
 	// Return the typename
@@ -368,14 +504,14 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 
     @Override
     public Node visitMapping(SolidityParser.MappingContext ctx) {
-	// For now we only handle mappings from addresses to uint or from uint to uint
+	// For now we only handle mappings from addresses or from uint
 	Type key = (Type) this.visit(ctx.elementaryTypeName());
 	Type value = (Type) this.visit(ctx.typeName());
 
 	if (! (key.asString().equals(UINT) || key.asString().equals("Address")))
 	    throw new UnsupportedMappingTypeException(key.asString());
 
-	return new ArrayType(value, ArrayType.Origin.TYPE, new NodeList<AnnotationExpr>());
+	return Helper.getMappingType(key, value);
     }
 
     /* EXPRESSION */
@@ -404,8 +540,26 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 
 
 
+	MethodCallExpr call = new MethodCallExpr(null, method.getName(), arguments);
+
+	// The calls to keccak256 and to the transfer method of an address are completed here rather than by the SymbolSolver
+	// (see SymbolSolver.crypto and SymbolSolver.correctAddressTransferMethod)
+	if (contract.types != null) {
+	    if (length == 0 && methodNameParts[0].equals("keccak256"))
+		call.setScope(new NameExpr("Crypto"));
+	    else if (length > 0 && methodNameParts[length].equals("transfer")) {
+		String scope = method.toString().substring(0, method.toString().lastIndexOf('.'));
+
+		if (TypeEnvironment.ADDRESS.equals(contract.types.infer(new NameExpr(scope)))) {
+		    arguments.add(new ThisExpr());
+		    arguments.add(new NameExpr("block"));
+		    arguments.add(new NameExpr("tx"));
+		}
+	    }
+	}
+
 	// Return the method call
-	return new MethodCallExpr(null, method.getName(), arguments);
+	return call;
     }
     
     @Override
@@ -447,6 +601,16 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	Expression array = (Expression) this.visit(ctx.expression(0));
 	Expression index = (Expression) this.visit(ctx.expression(1));
 
+	// The element of a mapping is read with its get method (see SymbolSolver.correctMappingAccess),
+	// the index of an array is converted to an int (see SymbolSolver.correctArrayAccess)
+	if (contract.types != null) {
+	    if (TypeEnvironment.isMapping(contract.types.infer(array)))
+		return new MethodCallExpr(array, "get", NodeList.nodeList(index));
+
+	    if (Helper.getUintImplementation().equals(contract.types.infer(index)))
+		index = new MethodCallExpr(index, "asInt");
+	}
+
 	return new ArrayAccessExpr(array, index);
     }
 
@@ -571,7 +735,9 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
     @Override
     public Node visitConstructorDefinition (SolidityParser.ConstructorDefinitionContext ctx) {
 	// Get the name of the contract to define the Java constructor
-	String id = currentContractName;
+	String id = contract.name;
+
+	HashMap<String, String> scope = enterScope(ctx.parameterList(), null, ctx.block());
 
 	// Set modifiers
 	EnumSet modifiers = EnumSet.of(Modifier.PUBLIC); // Default is public
@@ -596,41 +762,12 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 
 	// User defined modifiers
 	BlockStmt block = (BlockStmt) this.visit(ctx.block());
-
-	List<SolidityParser.ModifierInvocationContext> modifierInvocations = ctx.modifierList().modifierInvocation();
-	Collections.reverse(modifierInvocations);
-
-	for (SolidityParser.ModifierInvocationContext mod: modifierInvocations) {
-	    String name = mod.identifier().getText();
-
-	    List<String> params;
-	    try {
-		params = new ArrayList(mod.expressionList().expression().stream()
-				       .map(elt -> elt.getText())
-				       .collect(Collectors.toList()));
-
-	    }
-	    catch (NullPointerException e) {
-		params = new ArrayList<String>();
-	    }
-
-
-	    SolidityModifier solMod = modifiersMap.get(name);
-
-	    HashMap<String, String> map = new HashMap<>();
-
-	    for (int i = 0; i < params.size(); i++)
-		map.put(solMod.parameters.get(i), params.get(i));
-
-	    TranslateModifierVisitor modVisitor = new TranslateModifierVisitor(map, block);
-
-	    block = (BlockStmt) modVisitor.visit(solMod.code);
-	}
-
+	block = applyModifiers(ctx.modifierList(), block);
 
 	// Set block
 	method.setBody(block);
 
+	exitScope(scope);
 
 	return method;
     }
@@ -644,6 +781,8 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	else
 	    id = "fallback";
 
+	HashMap<String, String> scope = enterScope(ctx.parameterList(), ctx.returnParameters(), ctx.block());
+
 	// Modifiers TODO: implement all modifiers
 	EnumSet modifiers = EnumSet.of(Modifier.PUBLIC); // Default is public
 	SolidityParser.ModifierListContext modList = ctx.modifierList();
@@ -655,36 +794,7 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	BlockStmt block = (BlockStmt) this.visit(ctx.block());
 
 	// User defined modifiers
-
-	List<SolidityParser.ModifierInvocationContext> modifierInvocations = ctx.modifierList().modifierInvocation();
-	Collections.reverse(modifierInvocations);
-
-	for (SolidityParser.ModifierInvocationContext mod: modifierInvocations) {
-	    String name = mod.identifier().getText();
-
-	    List<String> params;
-	    try {
-		params = new ArrayList(mod.expressionList().expression().stream()
-				       .map(elt -> elt.getText())
-				       .collect(Collectors.toList()));
-
-	    }
-	    catch (NullPointerException e) {
-		params = new ArrayList<String>();
-	    }
-
-
-	    SolidityModifier solMod = modifiersMap.get(name);
-
-	    HashMap<String, String> map = new HashMap<>();
-
-	    for (int i = 0; i < params.size(); i++)
-		map.put(solMod.parameters.get(i), params.get(i));
-
-	    TranslateModifierVisitor modVisitor = new TranslateModifierVisitor(map, block);
-
-	    block = (BlockStmt) modVisitor.visit(solMod.code);
-	}
+	block = applyModifiers(ctx.modifierList(), block);
 
 	// Payable modifier
 	try {
@@ -722,6 +832,7 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 	// Set block
 	method.setBody(block);
 
+	exitScope(scope);
 
 	return method;
     }
@@ -822,8 +933,16 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
 
     @Override
     public Node visitAssignmentExpression(SolidityParser.AssignmentExpressionContext ctx) {
-	if (ctx.binop.getText().equals("=")) // TODO: implement more than assignement
-	    return new AssignExpr((Expression) this.visit(ctx.expression(0)), (Expression) this.visit(ctx.expression(1)),  AssignExpr.Operator.ASSIGN);
+	if (ctx.binop.getText().equals("=")) { // TODO: implement more than assignement
+	    Expression target = (Expression) this.visit(ctx.expression(0));
+	    Expression value = (Expression) this.visit(ctx.expression(1));
+
+	    // The element of a mapping is written with its set method (the only call that can be assigned is the one of visitArrayAccessExpression)
+	    if (target.isMethodCallExpr() && target.asMethodCallExpr().getNameAsString().equals("get"))
+		return Helper.getMappingSet(target.asMethodCallExpr(), value);
+
+	    return new AssignExpr(target, value, AssignExpr.Operator.ASSIGN);
+	}
 
 
 	System.out.println("WARNING: visitAssignmentExpression returned nothing");
@@ -836,6 +955,10 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
     public Node visitVariableDeclaration(SolidityParser.VariableDeclarationContext ctx) {
 	VariableDeclarator var = new VariableDeclarator((Type) this.visit(ctx.typeName()), (SimpleName) this.visit(ctx.identifier()));
 
+	// A mapping (a field of a struct) is created with the zero value of its values
+	if (ctx.typeName().mapping() != null)
+	    var.setInitializer(newMapping(ctx.typeName().mapping()));
+
 	return var;
     }
 
@@ -853,6 +976,153 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
     }
 
 
+    // Wraps the block with the modifiers invoked in the list (the first modifier of the list is the outermost one).
+    // Each modifier is translated once per contract into a template, which is then instantiated with the translated arguments.
+    private BlockStmt applyModifiers(SolidityParser.ModifierListContext modList, BlockStmt block) {
+	List<SolidityParser.ModifierInvocationContext> modifierInvocations = modList.modifierInvocation();
+	Collections.reverse(modifierInvocations);
+
+	for (SolidityParser.ModifierInvocationContext mod: modifierInvocations) {
+	    ModifierTemplate template = getModifierTemplate(mod.identifier().getText());
+
+	    List<Expression> arguments = new ArrayList<>();
+	    if (mod.expressionList() != null)
+		mod.expressionList().expression().stream()
+		    .forEach(elt -> arguments.add((Expression) this.visit(elt)));
+
+	    // The conversions of the template are the ones of the declared types of the parameters
+	    if (contract.types != null)
+		for (int i = 0; i < arguments.size() && i < template.getParameterTypes().size(); i++)
+		    contract.types.expect(arguments.get(i), template.getParameterTypes().get(i));
+
+	    block = template.instantiate(arguments, block);
+	}
+
+	return block;
+    }
+
+    private ModifierTemplate getModifierTemplate(String name) {
+	ModifierTemplate template = contract.modifierTemplates.get(name);
+
+	if (template == null) {
+	    SolidityModifier solMod = contract.modifiers.get(name);
+	    if (solMod == null)
+		throw new UnknownModifierException(name);
+
+	    // The parameters are declared with their types, as the parameters of a function (see enterScope)
+	    List<String> types = new ArrayList<>();
+	    for (SolidityParser.TypeNameContext type: solMod.parameterTypes)
+		types.add(typeName(type));
+
+	    HashMap<String, String> scope = null;
+	    if (contract.types != null) {
+		scope = contract.types.enterScope();
+		for (int i = 0; i < solMod.parameters.size(); i++)
+		    contract.types.declareLocal(solMod.parameters.get(i), types.get(i));
+		declareLocals(solMod.code);
+	    }
+
+	    BlockStmt body = (BlockStmt) new TranslateModifierVisitor(contract).visit(solMod.code);
+	    template = new ModifierTemplate(solMod.parameters, types, body);
+
+	    exitScope(scope);
+	    contract.modifierTemplates.put(name, template);
+	}
+
+	return template;
+    }
+
+    // Declares the state variables, the structs, the enums and the functions of the contract in its TypeEnvironment
+    private void declareTypes(List<SolidityParser.ContractPartContext> contractParts) {
+	for (SolidityParser.ContractPartContext part: contractParts) {
+	    if (part.stateVariableDeclaration() != null)
+		contract.types.declareStateVariable(part.stateVariableDeclaration().identifier().getText(),
+						    typeName(part.stateVariableDeclaration().typeName()));
+	    else if (part.structDefinition() != null) {
+		String struct = part.structDefinition().identifier().getText();
+
+		contract.types.declareFunction(struct, struct); // The constructor of the struct
+		part.structDefinition().variableDeclaration().stream()
+		    .forEach(elt -> contract.types.declareField(struct, elt.identifier().getText(), typeName(elt.typeName())));
+	    }
+	    else if (part.enumDefinition() != null) {
+		String enumName = part.enumDefinition().identifier().getText();
+
+		part.enumDefinition().enumValue().stream()
+		    .forEach(elt -> contract.types.declareField(enumName, elt.getText(), UINT));
+	    }
+	    else if (part.functionDefinition() != null && part.functionDefinition().identifier() != null) {
+		SolidityParser.ReturnParametersContext returned = part.functionDefinition().returnParameters();
+		String type = "void";
+		if (returned != null && !returned.parameterList().parameter().isEmpty())
+		    type = typeName(returned.parameterList().parameter(0).typeName());
+
+		contract.types.declareFunction(part.functionDefinition().identifier().getText(), type);
+	    }
+	}
+    }
+
+    // Starts the scope of a function in the TypeEnvironment, with its parameters and its local variables, and returns the previous scope
+    // (the named returned values are not declared in Java, their type is not known)
+    private HashMap<String, String> enterScope(SolidityParser.ParameterListContext parameters, SolidityParser.ReturnParametersContext returned, ParserRuleContext body) {
+	if (contract.types == null)
+	    return null;
+
+	HashMap<String, String> scope = contract.types.enterScope();
+
+	parameters.parameter().stream()
+	    .filter(elt -> elt.identifier() != null)
+	    .forEach(elt -> contract.types.declareLocal(elt.identifier().getText(), typeName(elt.typeName())));
+
+	if (returned != null)
+	    returned.parameterList().parameter().stream()
+		.filter(elt -> elt.identifier() != null)
+		.forEach(elt -> contract.types.declareLocal(elt.identifier().getText(), null));
+
+	declareLocals(body);
+
+	return scope;
+    }
+
+    private void exitScope(HashMap<String, String> scope) {
+	if (contract.types != null)
+	    contract.types.exitScope(scope);
+    }
+
+    // Declares the local variables of a block (the variables of a function are visible in the whole function in Solidity)
+    private void declareLocals(ParserRuleContext body) {
+	for (ParseTree tree: Trees.findAllRuleNodes(body, SolidityParser.RULE_variableDeclaration)) {
+	    SolidityParser.VariableDeclarationContext declaration = (SolidityParser.VariableDeclarationContext) tree;
+	    contract.types.declareLocal(declaration.identifier().getText(), typeName(declaration.typeName()));
+	}
+    }
+
+    // The name of the Java type of a Solidity type
+    private String typeName(SolidityParser.TypeNameContext ctx) {
+	return ctx != null ? ((Type) this.visit(ctx)).asString() : null;
+    }
+
+    // Puts the modifiers defined in the contract parts in the mapping of modifiers
+    private static void recordModifiers(List<SolidityParser.ContractPartContext> contractParts, HashMap<String, SolidityModifier> modifiersMap) {
+	contractParts.stream()
+	    .map(elt -> elt.modifierDefinition())
+	    .filter(elt -> elt != null) // Only keep the definitions of a modifier
+	    .forEach(elt -> { // Put the modifiers in the mapping
+		    String name = elt.identifier().getText();
+		    ParserRuleContext code = elt.block();
+		    List<String> parameters = elt.parameterList().parameter().stream()
+			.map(e -> e.identifier().getText())
+			.collect(Collectors.toList());
+		    List<SolidityParser.TypeNameContext> parameterTypes = elt.parameterList().parameter().stream()
+			.map(e -> e.typeName())
+			.collect(Collectors.toList());
+
+		    SolidityModifier modifier = new SolidityModifier(name, code, new ArrayList(parameters), parameterTypes);
+
+		    modifiersMap.put(name, modifier);
+		});
+    }
+
     // Given a list of ContractPart, this function outputs a mapping from names to their types (enum, struct, function or modifier)
     private HashMap<String, String> getTypesMap(List<SolidityParser.ContractPartContext> contractParts) {
 	HashMap<String, String> typesMap = new HashMap<>();
@@ -873,33 +1143,42 @@ public class TranslateVisitor extends SolidityBaseVisitor<Node> {
     }
 }
 
-// Another visitor that does the same thing as TranslateVisitor but maps
-// some identifiers to other identifers (it allows to rename some variables)
+// Another visitor that does the same thing as TranslateVisitor but translates the placeholder statement of a modifier
+// into a marker statement, where a ModifierTemplate puts the code of the function
 class TranslateModifierVisitor extends TranslateVisitor {
-    private HashMap<String, String> map;
-    BlockStmt code;
-    
 
-    TranslateModifierVisitor(HashMap<String, String> map, BlockStmt code) {
-	super();
-	
-	this.map = map;
-	this.code = code;
+    TranslateModifierVisitor(ContractContext contract) {
+	super(contract);
     }
 
     @Override
-    public Node visitIdentifier(SolidityParser.IdentifierContext ctx) {
-	// Change the identifier if needed
-	
-	if (this.map.containsKey(ctx.getText()))
-	    return new SimpleName(map.get(ctx.getText()));
-	else
-	    return new SimpleName(ctx.getText());
+    public Node visitPlaceHolderStatement(SolidityParser.PlaceHolderStatementContext ctx) {
+	return ModifierTemplate.placeholder();
     }
+}
 
-    @Override
-    public Node visitPlaceHolderStatement(SolidityParser.PlaceHolderStatementContext ctx) {
-	return this.code;
+// The state of the translation of a contract
+class ContractContext {
+    // Name of the contract (we need it to create the constructor of the contract)
+    String name;
+
+    // Mapping that keeps track of the type of some identifiers
+    HashMap<String, String> typesMap = new HashMap<>();
+
+    // List that stores the constructors of the structs
+    ArrayList<MethodDeclaration> structConstructors = new ArrayList<>();
+
+    // The types of the names of the contract, null if the types are not inferred
+    TypeEnvironment types;
+
+    // Mapping from the name of a modifier to the Solidity AST of this modifier (the modifiers of the contract and of the previous contracts)
+    final HashMap<String, SolidityModifier> modifiers;
+
+    // Mapping from the name of a modifier to its translation, the modifiers are translated the first time they are used
+    HashMap<String, ModifierTemplate> modifierTemplates = new HashMap<>();
+
+    ContractContext(HashMap<String, SolidityModifier> modifiers) {
+	this.modifiers = modifiers;
     }
 }
 
@@ -908,11 +1187,92 @@ class SolidityModifier {
     String name;
     ParserRuleContext code;
     ArrayList<String> parameters;
+    List<SolidityParser.TypeNameContext> parameterTypes;
 
-    SolidityModifier(String name, ParserRuleContext code, ArrayList<String> parameters) {
+    SolidityModifier(String name, ParserRuleContext code, ArrayList<String> parameters, List<SolidityParser.TypeNameContext> parameterTypes) {
 	this.name = name;
 	this.code = code;
 	this.parameters = parameters;
+	this.parameterTypes = parameterTypes;
+    }
+}
+
+
+// The translation of a modifier, with the parameters of the modifier (and the Java names of their types) and a marker in place of
+// the placeholder statement "_". It is instantiated by cloning it, replacing the parameters by the translated arguments and the markers
+// by the code of the function.
+class ModifierTemplate {
+    // Name of the marker of the placeholder, it can not be the name of a Solidity identifier
+    private static final String PLACEHOLDER = "#placeholder";
+
+    private final List<String> parameters;
+    private final List<String> parameterTypes;
+    private final BlockStmt body;
+
+    ModifierTemplate(List<String> parameters, List<String> parameterTypes, BlockStmt body) {
+	this.parameters = parameters;
+	this.parameterTypes = parameterTypes;
+	this.body = body;
+    }
+
+    List<String> getParameterTypes() {
+	return parameterTypes;
+    }
+
+    static Statement placeholder() {
+	return new ExpressionStmt(new NameExpr(PLACEHOLDER));
+    }
+
+    BlockStmt instantiate(List<Expression> arguments, BlockStmt code) {
+	BlockStmt instance = body.clone();
+
+	HashMap<String, Expression> substitutions = new HashMap<>();
+	for (int i = 0; i < arguments.size(); i++)
+	    substitutions.put(parameters.get(i), arguments.get(i));
+
+	for (NameExpr name: instance.findAll(NameExpr.class)) {
+	    String id = name.getNameAsString();
+	    int dot = id.indexOf('.');
+	    String parameter = dot < 0 ? id : id.substring(0, dot);
+
+	    if (substitutions.containsKey(parameter))
+		name.replace(access(substitutions.get(parameter), id, dot));
+	}
+
+	// A method called on a dotted name has a dotted name (see visitFunctionCallExpression), the argument becomes its scope
+	for (MethodCallExpr call: instance.findAll(MethodCallExpr.class)) {
+	    String id = call.getNameAsString();
+	    int dot = id.indexOf('.');
+	    if (call.getScope().isPresent() || dot < 0 || !substitutions.containsKey(id.substring(0, dot)))
+		continue;
+
+	    int last = id.lastIndexOf('.');
+	    call.setScope(access(substitutions.get(id.substring(0, dot)), id.substring(0, last), last > dot ? dot : -1));
+	    call.setName(id.substring(last + 1));
+	}
+
+	boolean first = true;
+	for (ExpressionStmt statement: instance.findAll(ExpressionStmt.class)) {
+	    if (statement.getExpression().isNameExpr() && statement.getExpression().asNameExpr().getNameAsString().equals(PLACEHOLDER)) {
+		statement.replace(first ? code : code.clone());
+		first = false;
+	    }
+	}
+
+	return instance;
+    }
+
+    // The argument followed by the fields of the dotted name after the parameter (a parameter used in a dot expression is part of a
+    // dotted name, see visitDotExpression): the argument, which can be any expression, is the scope of the field accesses
+    private static Expression access(Expression argument, String name, int dot) {
+	Expression access = argument.clone();
+	if (dot < 0)
+	    return access;
+
+	for (String field: name.substring(dot + 1).split("\\."))
+	    access = new FieldAccessExpr(access, field);
+
+	return access;
     }
 }
 
@@ -939,3 +1299,10 @@ class UnsupportedSolidityFeatureException extends RuntimeException {
 	super("The Solidity feature " + feature + " is not supported.");
     }
 }
+
+class UnknownModifierException extends RuntimeException {
+
+    UnknownModifierException(String modifier) {
+	super("The modifier " + modifier + " is not defined in the source unit.");
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.*;
+
+// An on-disk cache of translations. An entry is keyed by a hash of the Solidity source, of the version and the build of Javadity
+// and of the options of the translation. There are two kinds of entries: whole source units (a hit avoids the whole translation) and
+// single contracts (when a source unit changed, only the contracts that changed are translated again).
+// When the cache is bigger than its maximum size, the least recently used entries are removed.
+// The cache can be shared by several threads.
+
+public class TranslationCache {
+    public static final String VERSION = readVersion();
+    // The snapshots of a version share their version number, the build tells them apart
+    public static final String BUILD = readBuild();
+
+    private static final String UNIT = "unit";
+    private static final String CONTRACT = "contract";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxSize;
+    private final String options;
+
+    // The entries of the cache, from the least recently used to the most recently used, with their size
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    private final AtomicLong unitHits = new AtomicLong();
+    private final AtomicLong unitMisses = new AtomicLong();
+    private final AtomicLong contractHits = new AtomicLong();
+    private final AtomicLong contractMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // options is a description of the options that change the translation
+    public TranslationCache(Path directory, long maxSize, String options) throws IOException {
+	this.directory = directory;
+	this.maxSize = maxSize;
+	this.options = options;
+
+	Files.createDirectories(directory);
+
+	// The recency of the entries is given by their modification time (it is updated on each hit)
+	try (Stream<Path> files = Files.list(directory)) {
+	    List<Path> existing = files
+		.filter(Files::isRegularFile)
+		.filter(file -> !file.getFileName().toString().endsWith(TEMPORARY_SUFFIX))
+		.sorted(Comparator.comparing(TranslationCache::lastModified))
+		.collect(Collectors.toList());
+
+	    for (Path file: existing) {
+		long fileSize = Files.size(file);
+		entries.put(file.getFileName().toString(), fileSize);
+		size += fileSize;
+	    }
+	}
+    }
+
+    // Returns the translation of the whole source unit, or null if it is not in the cache
+    public String getUnit(String source) {
+	String translation = get(key(UNIT, source));
+	(translation == null ? unitMisses : unitHits).incrementAndGet();
+
+	return translation;
+    }
+
+    public void putUnit(String source, String translation) throws IOException {
+	put(key(UNIT, source), translation);
+    }
+
+    // Returns the translation of a contract, or null if it is not in the cache.
+    // The source of a contract must contain everything its translation depends on (see Translator)
+    public String getContract(String source) {
+	String translation = get(key(CONTRACT, source));
+	(translation == null ? contractMisses : contractHits).incrementAndGet();
+
+	return translation;
+    }
+
+    public void putContract(String source, String translation) throws IOException {
+	put(key(CONTRACT, source), translation);
+    }
+
+    private String get(String key) {
+	synchronized (this) {
+	    if (entries.get(key) == null) // Also marks the entry as the most recently used
+		return null;
+	}
+
+	Path file = directory.resolve(key);
+	try {
+	    String translation = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+
+	    return translation;
+	}
+	catch (IOException e) { // The entry was removed by someone else
+	    remove(key);
+	    return null;
+	}
+    }
+
+    private void put(String key, String translation) throws IOException {
+	byte[] bytes = translation.getBytes(StandardCharsets.UTF_8);
+	if (bytes.length > maxSize)
+	    return;
+
+	// The entry is written in a temporary file first, so that nobody can read a partial entry
+	Path temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+	Files.write(temporary, bytes);
+	Files.move(temporary, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+	synchronized (this) {
+	    Long previous = entries.put(key, (long) bytes.length);
+	    size += bytes.length - (previous == null ? 0 : previous);
+
+	    // Evict the least recently used entries
+	    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+	    while (size > maxSize && iterator.hasNext()) {
+		Map.Entry<String, Long> eldest = iterator.next();
+		iterator.remove();
+		size -= eldest.getValue();
+		evictions.incrementAndGet();
+		Files.deleteIfExists(directory.resolve(eldest.getKey()));
+	    }
+	}
+    }
+
+    private synchronized void remove(String key) {
+	Long entrySize = entries.remove(key);
+	if (entrySize != null)
+	    size -= entrySize;
+    }
+
+    private String key(String kind, String source) {
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+	    for (String part: new String[] {kind, VERSION, BUILD, options, source}) {
+		digest.update(part.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	    }
+
+	    return hex(digest.digest());
+	}
+	catch (NoSuchAlgorithmException e) { // Every Java platform has SHA-256
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    @Override
+    public synchronized String toString() {
+	return String.format("Cache: %d/%d unit hits, %d/%d contract hits, %d entries (%d KB), %d evictions",
+			     unitHits.get(), unitHits.get() + unitMisses.get(),
+			     contractHits.get(), contractHits.get() + contractMisses.get(),
+			     entries.size(), size / 1024, evictions.get());
+    }
+
+    private static FileTime lastModified(Path file) {
+	try {
+	    return Files.getLastModifiedTime(file);
+	}
+	catch (IOException e) {
+	    return FileTime.fromMillis(0);
+	}
+    }
+
+    private static String hex(byte[] bytes) {
+	StringBuilder hex = new StringBuilder();
+	for (byte b: bytes)
+	    hex.append(String.format("%02x", b));
+
+	return hex.toString();
+    }
+
+    private static String readVersion() {
+	try (InputStream input = TranslationCache.class.getResourceAsStream("/javadity.properties")) {
+	    if (input == null)
+		return "unknown";
+
+	    Properties properties = new Properties();
+	    properties.load(input);
+
+	    return properties.getProperty("version", "unknown");
+	}
+	catch (IOException e) {
+	    return "unknown";
+	}
+    }
+
+    // A hash of the classes of the translator and of the blockchain classes (the symbol solver reads them), and of the pom
+    // of Javadity (which gives the versions of the libraries). In the jar, their names and CRCs are hashed (the CRCs are read
+    // from the directory of the jar, the classes are not decompressed); when Javadity runs from its classes, their contents are.
+    private static String readBuild() {
+	CodeSource code = TranslationCache.class.getProtectionDomain().getCodeSource();
+	if (code == null)
+	    return "unknown";
+
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+	    File location = new File(code.getLocation().toURI());
+
+	    if (location.isDirectory()) {
+		Path root = location.toPath();
+		try (Stream<Path> files = Files.walk(root)) {
+		    List<Path> classes = files
+			.filter(file -> isBuild(root.relativize(file).toString().replace(File.separatorChar, '/')))
+			.sorted()
+			.collect(Collectors.toList());
+
+		    for (Path file: classes) {
+			digest.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+			digest.update(Files.readAllBytes(file));
+		    }
+		}
+	    }
+	    else {
+		try (ZipFile jar = new ZipFile(location)) {
+		    for (ZipEntry entry: Collections.list(jar.entries()))
+			if (isBuild(entry.getName())) {
+			    digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+			    digest.update(ByteBuffer.allocate(Long.BYTES).putLong(entry.getCrc()).array());
+			}
+		}
+	    }
+
+	    return hex(digest.digest());
+	}
+	catch (IOException | URISyntaxException | IllegalArgumentException e) {
+	    return "unknown";
+	}
+	catch (NoSuchAlgorithmException e) { // Every Java platform has SHA-256
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    // Whether the file (its path in the jar or in the directory of the classes) is hashed by readBuild
+    private static boolean isBuild(String path) {
+	if (path.endsWith(".class"))
+	    return path.indexOf('/') < 0 || path.startsWith("blockchain/");
+
+	return path.equals("META-INF/maven/javadity/javadity/pom.xml");
+    }
+}
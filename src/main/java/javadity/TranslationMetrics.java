@@ -0,0 +1,231 @@
+import org.antlr.v4.runtime.atn.PredictionMode;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Records the time spent and the memory allocated in each phase of the translation and in each refinement pass of the SymbolSolver,
+// with the number of nodes handled by each of them. The metrics of several translations can be added together
+// (a Translator accumulates the metrics of all the files it translates).
+// A TranslationMetrics must be filled by one thread at a time, since the allocated memory is measured for the current thread.
+
+public class TranslationMetrics {
+    public enum Phase {
+	LEX, // Tokenization of the Solidity source (nodes: tokens)
+	PARSE, // Construction of the Solidity parse tree (nodes: nodes of the parse tree)
+	VISIT, // Translation of the parse tree into a Java AST by TranslateVisitor (nodes: nodes of the Java AST)
+	REFINE, // Corrections of the Java AST by SymbolSolver (nodes: nodes of the refined Java AST)
+	EMIT // Printing and writing of the Java code (nodes: nodes printed, 0 when the code comes from the cache)
+    }
+
+    // Name of the translated file, null for the metrics of several files
+    private final String source;
+
+    private final Measure[] phases = new Measure[Phase.values().length];
+
+    // The measures of the refinement passes, in the order in which they were first applied (nodes: nodes rewritten by the pass)
+    private final Map<String, Measure> passes = new LinkedHashMap<>();
+
+    private int files = 0;
+
+    // Number of files parsed with the SLL prediction mode only, and number of files that needed the LL mode
+    private int sllFiles = 0;
+    private int llFiles = 0;
+
+    public TranslationMetrics() {
+	this(null);
+    }
+
+    public TranslationMetrics(String source) {
+	this.source = source;
+
+	for (int i = 0; i < phases.length; i++)
+	    phases[i] = new Measure();
+    }
+
+    // Adds the time elapsed and the memory allocated since start to the phase, and returns a new sample
+    // (so that the next phase can start from it)
+    public Sample record(Phase phase, Sample start, long nodes) {
+	Sample now = new Sample();
+	phases[phase.ordinal()].add(start, now, nodes);
+
+	return now;
+    }
+
+    public Sample recordPass(String pass, Sample start, long nodes) {
+	Sample now = new Sample();
+	passes.computeIfAbsent(pass, name -> new Measure()).add(start, now, nodes);
+
+	return now;
+    }
+
+    public void fileTranslated() {
+	files++;
+    }
+
+    public void parsed(PredictionMode mode) {
+	if (mode == PredictionMode.SLL)
+	    sllFiles++;
+	else
+	    llFiles++;
+    }
+
+    public synchronized void add(TranslationMetrics other) {
+	synchronized (other) {
+	    for (int i = 0; i < phases.length; i++)
+		phases[i].add(other.phases[i]);
+	    for (Map.Entry<String, Measure> pass: other.passes.entrySet())
+		passes.computeIfAbsent(pass.getKey(), name -> new Measure()).add(pass.getValue());
+
+	    files += other.files;
+	    sllFiles += other.sllFiles;
+	    llFiles += other.llFiles;
+	}
+    }
+
+    // Time spent in the phase, in nanoseconds
+    public long getTime(Phase phase) {
+	return phases[phase.ordinal()].time;
+    }
+
+    // Memory allocated during the phase, in bytes
+    public long getAllocatedBytes(Phase phase) {
+	return phases[phase.ordinal()].bytes;
+    }
+
+    public long getNodes(Phase phase) {
+	return phases[phase.ordinal()].nodes;
+    }
+
+    public long getTotalTime() {
+	long total = 0;
+	for (Measure phase: phases)
+	    total += phase.time;
+
+	return total;
+    }
+
+    public String getSource() {
+	return source;
+    }
+
+    public int getFiles() {
+	return files;
+    }
+
+    public int getSllFiles() {
+	return sllFiles;
+    }
+
+    public int getLlFiles() {
+	return llFiles;
+    }
+
+    @Override
+    public synchronized String toString() {
+	StringBuilder builder = new StringBuilder();
+	long total = Math.max(getTotalTime(), 1);
+
+	for (Phase phase: Phase.values())
+	    builder.append(String.format("  %-7s %10.2f ms %5.1f%% %10.2f MB%n", phase.name().toLowerCase(), getTime(phase) / 1e6,
+					 100.0 * getTime(phase) / total, getAllocatedBytes(phase) / (1024.0 * 1024.0)));
+
+	if (sllFiles + llFiles > 0)
+	    builder.append(String.format("  %d files parsed with SLL, %d needed LL%n", sllFiles, llFiles));
+
+	return builder.toString();
+    }
+
+    // The metrics as a JSON object
+    public synchronized String toJson() {
+	StringBuilder json = new StringBuilder("{");
+
+	if (source != null)
+	    json.append("\"file\": ").append(quote(source)).append(", ");
+	json.append(String.format("\"files\": %d, \"sllFiles\": %d, \"llFiles\": %d, ", files, sllFiles, llFiles));
+
+	json.append("\"phases\": {");
+	for (Phase phase: Phase.values())
+	    json.append(phase.ordinal() > 0 ? ", " : "").append(quote(phase.name().toLowerCase())).append(": ").append(phases[phase.ordinal()].toJson());
+
+	json.append("}, \"passes\": {");
+	String separator = "";
+	for (Map.Entry<String, Measure> pass: passes.entrySet()) {
+	    json.append(separator).append(quote(pass.getKey())).append(": ").append(pass.getValue().toJson());
+	    separator = ", ";
+	}
+
+	return json.append("}}").toString();
+    }
+
+    // A JSON object with the metrics of all the translations and the metrics of each file
+    public static String toJson(TranslationMetrics total, Collection<TranslationMetrics> files) {
+	StringBuilder json = new StringBuilder("{\n  \"total\": ").append(total.toJson()).append(",\n  \"files\": [");
+
+	String separator = "\n    ";
+	for (TranslationMetrics file: files) {
+	    json.append(separator).append(file.toJson());
+	    separator = ",\n    ";
+	}
+
+	return json.append(files.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    private static String quote(String string) {
+	return "\"" + string.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // The time and the memory allocated by the current thread at some point
+    public static class Sample {
+	private static final com.sun.management.ThreadMXBean BEAN = threadBean();
+
+	final long time;
+	final long bytes;
+
+	public Sample() {
+	    time = System.nanoTime();
+	    bytes = BEAN != null ? BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	// The allocated memory is only available on the JVMs that implement the extension of ThreadMXBean of HotSpot
+	private static com.sun.management.ThreadMXBean threadBean() {
+	    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+	    if (!(bean instanceof com.sun.management.ThreadMXBean))
+		return null;
+
+	    com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+	    if (!hotspotBean.isThreadAllocatedMemorySupported())
+		return null;
+
+	    hotspotBean.setThreadAllocatedMemoryEnabled(true);
+	    return hotspotBean;
+	}
+    }
+
+    // What was measured for a phase or a pass
+    private static class Measure {
+	long runs = 0;
+	long time = 0;
+	long bytes = 0;
+	long nodes = 0;
+
+	void add(Sample start, Sample end, long nodes) {
+	    runs++;
+	    time += end.time - start.time;
+	    bytes += end.bytes - start.bytes;
+	    this.nodes += nodes;
+	}
+
+	void add(Measure other) {
+	    runs += other.runs;
+	    time += other.time;
+	    bytes += other.bytes;
+	    nodes += other.nodes;
+	}
+
+	String toJson() {
+	    return String.format("{\"runs\": %d, \"timeNanos\": %d, \"allocatedBytes\": %d, \"nodes\": %d}", runs, time, bytes, nodes);
+	}
+    }
+}
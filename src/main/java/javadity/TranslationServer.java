@@ -0,0 +1,284 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// A long-running translation server. It keeps a Translator (and thus the parser, the lexer and the type solver) warm
+// and translates the files that clients ask for, one request at a time. Each connection is read by its own thread, a client
+// that keeps its connection open does not block the others, and a connection that sends nothing for READ_TIMEOUT is closed.
+//
+// The server only listens on the loopback interface, and it reads and writes the files with the rights of its user: it only
+// serves the clients that know the token it writes in a file that only its user can read (see tokenFile), i.e. the processes of
+// its user. The protocol is line based, each request is one line:
+//   TOKEN <tab> token (the first request of each connection)
+//   TRANSLATE <tab> source file <tab> destination file
+//   SHUTDOWN
+// and each request gets one line as an answer:
+//   OK <tab> latency of the request in microseconds
+//   ERROR <tab> message
+// A connection whose first request is not the token gets an ERROR and is closed.
+
+public class TranslationServer {
+    static final String TOKEN = "TOKEN";
+    static final String TRANSLATE = "TRANSLATE";
+    static final String SHUTDOWN = "SHUTDOWN";
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+    static final String SEPARATOR = "\t";
+
+    // The time after which a connection that sends nothing is closed, in milliseconds
+    static final int READ_TIMEOUT = 30000;
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final ServerSocket serverSocket;
+    private final Translator translator = new Translator();
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+
+    private final String token;
+    private final Path tokenFile;
+
+    private volatile boolean running = true;
+
+    // Only updated by the translations, which are made one at a time (while holding the lock of the translator)
+    private long requests = 0;
+    private long totalLatency = 0;
+
+    public TranslationServer(int port, TranslationCache cache) throws IOException {
+	serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	translator.setCache(cache);
+
+	byte[] bytes = new byte[TOKEN_BYTES];
+	new SecureRandom().nextBytes(bytes);
+	StringBuilder hex = new StringBuilder();
+	for (byte b: bytes)
+	    hex.append(String.format("%02x", b));
+	token = hex.toString();
+
+	tokenFile = tokenFile(serverSocket.getLocalPort());
+	writeToken(tokenFile, token);
+    }
+
+    // The file of the token of the server listening on the port, in the home directory of the user
+    static Path tokenFile(int port) {
+	return Paths.get(System.getProperty("user.home"), ".javadity", "server-" + port + ".token");
+    }
+
+    // Writes the token in a new file that only the user can read and write
+    private static void writeToken(Path file, String token) throws IOException {
+	Files.createDirectories(file.getParent());
+	Files.deleteIfExists(file);
+
+	if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+	    Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+	else {
+	    Files.createFile(file);
+	    File created = file.toFile();
+	    created.setReadable(false, false);
+	    created.setWritable(false, false);
+	    created.setReadable(true, true);
+	    created.setWritable(true, true);
+	}
+
+	Files.write(file, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getPort() {
+	return serverSocket.getLocalPort();
+    }
+
+    public void setImportResolver(ImportResolver importResolver) {
+	translator.setImportResolver(importResolver);
+    }
+
+    public void setParseReport(boolean parseReport) {
+	translator.setParseReport(parseReport);
+    }
+
+    public void setSplitContracts(boolean splitContracts) {
+	translator.setSplitContracts(splitContracts);
+    }
+
+    public void setParallelContracts(boolean parallelContracts) {
+	translator.setParallelContracts(parallelContracts);
+    }
+
+    public void setInferTypes(boolean inferTypes) {
+	translator.setInferTypes(inferTypes);
+    }
+
+    public void setStreaming(boolean streaming) {
+	translator.setStreaming(streaming);
+    }
+
+    public TranslationMetrics getMetrics() {
+	return translator.getMetrics();
+    }
+
+    // Accepts clients until a SHUTDOWN request is received, then waits for the connections that are open
+    public void serve() throws IOException {
+	System.out.println("Javadity server listening on " + serverSocket.getLocalSocketAddress());
+
+	try {
+	    while (running) {
+		try {
+		    Socket client = serverSocket.accept();
+		    connections.execute(() -> serve(client));
+		}
+		catch (IOException e) {
+		    if (running) // Otherwise the socket was closed by SHUTDOWN
+			System.err.println(e);
+		}
+	    }
+	}
+	finally {
+	    serverSocket.close();
+	    Files.deleteIfExists(tokenFile);
+	    connections.shutdown();
+	}
+
+	try {
+	    connections.awaitTermination(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	}
+
+	synchronized (translator) {
+	    if (requests > 0)
+		System.out.printf("%d requests, %.2f ms on average%n", requests, totalLatency / 1e6 / requests);
+	}
+    }
+
+    private void serve(Socket client) {
+	try (Socket connection = client) {
+	    connection.setSoTimeout(READ_TIMEOUT);
+	    handle(connection);
+	}
+	catch (IOException e) {
+	    System.err.println(e);
+	}
+    }
+
+    private void handle(Socket client) throws IOException {
+	BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+	Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+
+	String line = in.readLine();
+	if (line == null)
+	    return;
+
+	String[] authentication = line.split(SEPARATOR);
+	if (!authentication[0].equals(TOKEN) || authentication.length != 2
+	    || !MessageDigest.isEqual(authentication[1].getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+	    out.write(ERROR + SEPARATOR + "Invalid token, the token of the server is in " + tokenFile + "\n");
+	    out.flush();
+	    return;
+	}
+	out.write(OK + SEPARATOR + 0 + "\n");
+	out.flush();
+
+	while ((line = in.readLine()) != null) {
+	    String[] request = line.split(SEPARATOR);
+
+	    if (request[0].equals(SHUTDOWN)) {
+		running = false;
+		serverSocket.close();
+		out.write(OK + SEPARATOR + 0 + "\n");
+	    }
+	    else if (request[0].equals(TRANSLATE) && request.length == 3)
+		out.write(translate(request[1], request[2]) + "\n");
+	    else
+		out.write(ERROR + SEPARATOR + "Malformed request: " + line + "\n");
+
+	    out.flush();
+	}
+    }
+
+    // The translations are made one at a time, the Translator is not thread-safe
+    private String translate(String src, String dst) {
+	synchronized (translator) {
+	    long start = System.nanoTime();
+
+	    // The same errors as in a BatchTranslator: a file that can not be translated does not stop the server
+	    try {
+		translator.translate(Paths.get(src), Paths.get(dst));
+	    }
+	    catch (Exception | AssertionError | StackOverflowError e) {
+		System.out.println(src + ": " + e);
+		return ERROR + SEPARATOR + e.toString().replace('\n', ' ');
+	    }
+
+	    long latency = System.nanoTime() - start;
+	    requests++;
+	    totalLatency += latency;
+
+	    System.out.printf("%s -> %s: %.2f ms%n", src, dst, latency / 1e6);
+
+	    return OK + SEPARATOR + latency / 1000;
+	}
+    }
+}
+
+// The client side of the TranslationServer
+class TranslationClient {
+    private final int port;
+
+    TranslationClient(int port) {
+	this.port = port;
+    }
+
+    // Asks the server to translate src into dst. The paths are made absolute since the server may run in another directory.
+    // Returns the latency of the request (in microseconds) as measured by the server.
+    long translate(Path src, Path dst) throws IOException {
+	String request = TranslationServer.TRANSLATE + TranslationServer.SEPARATOR + src.toAbsolutePath()
+	    + TranslationServer.SEPARATOR + dst.toAbsolutePath();
+
+	return Long.parseLong(send(request));
+    }
+
+    void shutdown() throws IOException {
+	send(TranslationServer.SHUTDOWN);
+    }
+
+    // Sends the token of the server (written by the server in its token file) and the request
+    private String send(String request) throws IOException {
+	Path tokenFile = TranslationServer.tokenFile(port);
+	if (!Files.isReadable(tokenFile))
+	    throw new IOException("No token in " + tokenFile + ": no server of this user listens on the port " + port);
+	String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+
+	try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+	    Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+	    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+	    out.write(TranslationServer.TOKEN + TranslationServer.SEPARATOR + token + "\n");
+	    out.write(request + "\n");
+	    out.flush();
+	    socket.shutdownOutput();
+
+	    answer(in);
+	    return answer(in);
+	}
+    }
+
+    private static String answer(BufferedReader in) throws IOException {
+	String answer = in.readLine();
+	if (answer == null)
+	    throw new IOException("The server closed the connection");
+
+	String[] parts = answer.split(TranslationServer.SEPARATOR, 2);
+	if (!parts[0].equals(TranslationServer.OK))
+	    throw new IOException(parts.length > 1 ? parts[1] : answer);
+
+	return parts[1];
+    }
+}
@@ -0,0 +1,556 @@
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+// A Translator translates Solidity source units into Java. It keeps its lexer, its parser and the type solver of the
+// SymbolSolver, so that translating several files does not pay for their initialization again (the type solver is built
+// by the first translation that needs it, the translations whose types are inferred may never need it).
+// A Translator must not be used by several threads at the same time.
+
+public class Translator {
+    private static final String IMPORT_KEYWORD = "import";
+
+    private final SolidityLexer lexer = new SolidityLexer(null);
+    private final SolidityParser parser = new SolidityParser(null);
+
+    // Time spent in each phase by all the translations done by this translator
+    private final TranslationMetrics metrics = new TranslationMetrics();
+
+    // Metrics of the translation in progress (or of the last translation)
+    private TranslationMetrics current = new TranslationMetrics();
+
+    // Cache of the translations, null if there is none
+    private TranslationCache cache;
+
+    // Resolver of the imports of the translated files, null if the imports are ignored
+    private ImportResolver importResolver;
+
+    // If true, the prediction mode needed by each file and its parsing time are printed
+    private boolean parseReport = false;
+
+    // If true, each class of a translation is written in its own file (see Emitter.writeContracts)
+    private boolean splitContracts = false;
+
+    // If true, the contracts of a source unit are translated in parallel by the TranslateVisitor
+    private boolean parallelContracts = false;
+
+    // If true, the types are inferred by the TranslateVisitor, the symbol solver is only used for the contracts where it fails
+    private boolean inferTypes = false;
+
+    // If true, the files are translated one contract at a time (see translateStreaming)
+    private boolean streaming = false;
+
+    public void setCache(TranslationCache cache) {
+	this.cache = cache;
+    }
+
+    public void setImportResolver(ImportResolver importResolver) {
+	this.importResolver = importResolver;
+    }
+
+    public void setParseReport(boolean parseReport) {
+	this.parseReport = parseReport;
+    }
+
+    public void setSplitContracts(boolean splitContracts) {
+	this.splitContracts = splitContracts;
+    }
+
+    public void setParallelContracts(boolean parallelContracts) {
+	this.parallelContracts = parallelContracts;
+    }
+
+    public void setInferTypes(boolean inferTypes) {
+	this.inferTypes = inferTypes;
+    }
+
+    // The cache is not used by the streaming translations
+    public void setStreaming(boolean streaming) {
+	this.streaming = streaming;
+    }
+
+    public CompilationUnit translate(CharStream input) {
+	current = new TranslationMetrics(input.getSourceName());
+	CompilationUnit cu = translateTree(parse(input), Collections.emptyList());
+	metrics.add(current);
+
+	return cu;
+    }
+
+    // Translates the Solidity file src into the Java file dst (or into the directory Emitter.contractsDirectory(dst) if the
+    // classes are split). The contracts of the files it imports are not translated, but their modifiers are visible from its contracts.
+    public void translate(Path src, Path dst) throws IOException {
+	current = new TranslationMetrics(src.toString());
+
+	if (streaming) {
+	    translateStreaming(src, dst);
+	    current.fileTranslated();
+	    metrics.add(current);
+	    return;
+	}
+
+	TranslationMetrics.Sample time;
+	if (cache == null) {
+	    CompilationUnit cu;
+	    if (importResolver != null) {
+		ParsedUnit unit = importResolver.parse(src, this::parse);
+		cu = translateTree(unit.tree, importResolver.resolveImports(unit, this::parse));
+	    }
+	    else
+		cu = translateTree(parse(CharStreams.fromPath(src)), Collections.emptyList());
+	    time = new TranslationMetrics.Sample();
+
+	    if (splitContracts)
+		Emitter.writeContracts(cu, Emitter.contractsDirectory(dst), true);
+	    else
+		Emitter.write(cu, dst);
+	}
+	else {
+	    // The cache keeps the code of the whole unit, so it is written as it is
+	    String translation = translateWithCache(new String(Files.readAllBytes(src), StandardCharsets.UTF_8), src);
+	    time = new TranslationMetrics.Sample();
+
+	    if (splitContracts)
+		Emitter.writeContracts(JavaParser.parse(translation), Emitter.contractsDirectory(dst), true);
+	    else
+		Files.write(dst, translation.getBytes(StandardCharsets.UTF_8));
+	}
+
+	current.record(TranslationMetrics.Phase.EMIT, time, current.getNodes(TranslationMetrics.Phase.REFINE));
+
+	current.fileTranslated();
+	metrics.add(current);
+    }
+
+    private CompilationUnit translateTree(SolidityParser.SourceUnitContext tree, List<ParsedUnit> imports) {
+	TranslationMetrics.Sample time = new TranslationMetrics.Sample();
+	TranslateVisitor visitor = new TranslateVisitor();
+	visitor.setParallelContracts(parallelContracts);
+	visitor.setInferTypes(inferTypes);
+	visitor.setImportedUnits(trees(imports));
+	CompilationUnit cu = (CompilationUnit) visitor.visit(tree);
+	time = current.record(TranslationMetrics.Phase.VISIT, time, countNodes(cu));
+
+	cu = SymbolSolver.refineTranslation(cu, null, false, current);
+	current.record(TranslationMetrics.Phase.REFINE, time, countNodes(cu));
+
+	return cu;
+    }
+
+    // Translates the file one top-level contract at a time: a contract is parsed, translated, refined and written before the next one
+    // is parsed, then its tokens and its parse tree are released. The file is read through unbuffered streams that only keep the tokens
+    // of the element being parsed (so that it can be parsed again with LL), so the memory needed depends on the largest contract
+    // rather than on the whole file. The types are always inferred, since each contract is refined without the other ones
+    // (the symbol solver could not resolve them). The output is the same as the output of the whole unit.
+    private void translateStreaming(Path src, Path dst) throws IOException {
+	TranslateVisitor visitor = new TranslateVisitor();
+	visitor.setInferTypes(true);
+
+	Set<Path> imported = new HashSet<>();
+	imported.add(src.toRealPath());
+
+	PredictionMode fileMode = PredictionMode.SLL;
+	boolean empty = true;
+
+	try (Reader reader = Files.newBufferedReader(src, StandardCharsets.UTF_8);
+	     Writer out = splitContracts ? null : Files.newBufferedWriter(dst, StandardCharsets.UTF_8)) {
+	    UnbufferedCharStream input = new UnbufferedCharStream(reader);
+	    input.name = src.toString();
+
+	    // The text of the tokens is copied, since the characters are not kept by the stream
+	    SolidityLexer streamLexer = new SolidityLexer(input);
+	    streamLexer.setTokenFactory(new CommonTokenFactory(true));
+	    UnbufferedTokenStream<Token> tokens = new UnbufferedTokenStream<>(streamLexer);
+
+	    while (tokens.LA(1) != Token.EOF) {
+		TranslationMetrics.Sample time = new TranslationMetrics.Sample();
+
+		int marker = tokens.mark();
+		int start = tokens.index();
+		ParserRuleContext tree;
+		try {
+		    tree = parseTopLevelElement(streamingParser(tokens, PredictionMode.SLL));
+		}
+		catch (ParseCancellationException e) {
+		    fileMode = PredictionMode.LL;
+		    tokens.seek(start);
+		    tree = parseTopLevelElement(streamingParser(tokens, PredictionMode.LL));
+		}
+		finally {
+		    tokens.release(marker);
+		}
+		time = current.record(TranslationMetrics.Phase.PARSE, time, countNodes(tree));
+
+		if (tree instanceof SolidityParser.ImportDirectiveContext && importResolver != null) {
+		    List<SolidityParser.ImportDirectiveContext> directive = Collections.singletonList((SolidityParser.ImportDirectiveContext) tree);
+		    for (ParsedUnit unit: importResolver.resolveImports(src, directive, imported, this::parse))
+			visitor.recordImportedUnit(unit.tree);
+		}
+		if (!(tree instanceof SolidityParser.ContractDefinitionContext))
+		    continue;
+
+		CompilationUnit cu = visitor.translateNextContract((SolidityParser.ContractDefinitionContext) tree);
+		time = current.record(TranslationMetrics.Phase.VISIT, time, countNodes(cu));
+
+		cu = SymbolSolver.refineTranslation(cu, null, false, current);
+		time = current.record(TranslationMetrics.Phase.REFINE, time, countNodes(cu));
+
+		if (splitContracts)
+		    Emitter.writeContracts(cu, Emitter.contractsDirectory(dst), false);
+		else {
+		    if (empty)
+			Emitter.writeImports(cu, out);
+		    else
+			out.write(System.lineSeparator());
+		    Emitter.writeType(cu.getType(0), out);
+		}
+		empty = false;
+		current.record(TranslationMetrics.Phase.EMIT, time, countNodes(cu));
+	    }
+
+	    if (empty && !splitContracts)
+		Emitter.writeImports(new CompilationUnit(null, TranslateVisitor.getImportDeclarations(), new NodeList<>(), null), out);
+	}
+	current.parsed(fileMode);
+
+	if (parseReport)
+	    System.err.printf("%s: parsed with %s%n", src, fileMode);
+    }
+
+    private static SolidityParser streamingParser(TokenStream tokens, PredictionMode mode) {
+	SolidityParser parser = new SolidityParser(tokens);
+	parser.getInterpreter().setPredictionMode(mode);
+	parser.removeErrorListeners();
+
+	if (mode == PredictionMode.SLL)
+	    parser.setErrorHandler(new BailErrorStrategy());
+	else
+	    parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+
+	return parser;
+    }
+
+    // Parses the next element of a source unit (the rule sourceUnit of the grammar), the contracts are the only elements that are translated
+    private static ParserRuleContext parseTopLevelElement(SolidityParser parser) {
+	switch (parser.getCurrentToken().getText()) {
+	case "pragma":
+	    return parser.pragmaDirective();
+	case IMPORT_KEYWORD:
+	    return parser.importDirective();
+	default:
+	    return parser.contractDefinition();
+	}
+    }
+
+    // The source unit is first parsed with the SLL prediction mode, which is much faster on the left-recursive expression rule.
+    // SLL gives up on some inputs that LL accepts, and it can not report syntax errors correctly: in that case the source unit
+    // is parsed again with the full LL prediction mode (see "Adaptive LL(*) parsing", Parr et al.)
+    private SolidityParser.SourceUnitContext parse(CharStream input) {
+	TranslationMetrics.Sample time = new TranslationMetrics.Sample();
+
+	lexer.setInputStream(input);
+	CommonTokenStream tokens = new CommonTokenStream(lexer);
+	tokens.fill();
+	time = current.record(TranslationMetrics.Phase.LEX, time, tokens.size());
+	long start = time.time;
+
+	PredictionMode mode = PredictionMode.SLL;
+	SolidityParser.SourceUnitContext tree;
+
+	parser.setTokenStream(tokens);
+	parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+	parser.setErrorHandler(new BailErrorStrategy());
+	parser.removeErrorListeners();
+
+	try {
+	    tree = parser.sourceUnit();
+	}
+	catch (ParseCancellationException e) {
+	    mode = PredictionMode.LL;
+
+	    tokens.seek(0);
+	    parser.reset();
+	    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+	    parser.setErrorHandler(new DefaultErrorStrategy());
+	    parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+
+	    tree = parser.sourceUnit();
+	}
+	time = current.record(TranslationMetrics.Phase.PARSE, time, countNodes(tree));
+	current.parsed(mode);
+
+	if (parseReport)
+	    System.err.printf("%s: parsed with %s in %.2f ms%n", input.getSourceName(), mode, (time.time - start) / 1e6);
+
+	return tree;
+    }
+
+    // Translates a source unit using the cache: if the whole unit is not in the cache, only the contracts that are not in the cache
+    // are translated (the others are only parsed from their cached Java code, since the refinement may need them).
+    // The translation depends on the files imported by the unit, so the key of the unit contains their hashes and the key of a
+    // contract may contain imported contracts. A source without the import keyword is only parsed if it is not in the cache.
+    private String translateWithCache(String source, Path src) throws IOException {
+	SolidityParser.SourceUnitContext tree = null;
+	List<ParsedUnit> imports = Collections.emptyList();
+	if (importResolver != null && source.contains(IMPORT_KEYWORD)) {
+	    ParsedUnit unit = importResolver.parse(src, this::parse);
+	    tree = unit.tree;
+	    imports = importResolver.resolveImports(unit, this::parse);
+	}
+
+	StringBuilder unitKey = new StringBuilder(source);
+	for (ParsedUnit unit: imports)
+	    unitKey.append('\0').append(unit.hash);
+
+	String translation = cache.getUnit(unitKey.toString());
+	if (translation != null)
+	    return translation;
+
+	if (tree == null)
+	    tree = parse(CharStreams.fromString(source, src.toString()));
+
+	// Look for each contract in the cache
+	Map<SolidityParser.ContractDefinitionContext, String> keys = contractKeys(tree, imports);
+	Map<SolidityParser.ContractDefinitionContext, TypeDeclaration<?>> cached = new HashMap<>();
+	for (Map.Entry<SolidityParser.ContractDefinitionContext, String> key: keys.entrySet()) {
+	    String contractTranslation = cache.getContract(key.getValue());
+	    if (contractTranslation != null)
+		cached.put(key.getKey(), JavaParser.parse(contractTranslation).getType(0));
+	}
+
+	CompilationUnit cu = translateMissing(tree, imports, cached);
+
+	// Store the new translations
+	List<SolidityParser.ContractDefinitionContext> contracts = tree.contractDefinition();
+	for (int i = 0; i < contracts.size(); i++)
+	    if (!cached.containsKey(contracts.get(i)))
+		cache.putContract(keys.get(contracts.get(i)), cu.getType(i).toString());
+
+	translation = cu.toString();
+	cache.putUnit(unitKey.toString(), translation);
+
+	return translation;
+    }
+
+    // Translates src into dst, as translate does, but only translates again the contracts of the file whose text changed since
+    // the previous translation kept in unit, or whose dependencies changed (see contractKey); the translations of the other contracts
+    // are reused. The unit is updated with the new translations, and the number of contracts translated again is returned.
+    // The parse trees are kept by the import resolver, which only parses a file again if it changed.
+    int translateIncrementally(Path src, Path dst, IncrementalUnit unit) throws IOException {
+	current = new TranslationMetrics(src.toString());
+
+	SolidityParser.SourceUnitContext tree;
+	List<ParsedUnit> imports = Collections.emptyList();
+	if (importResolver != null) {
+	    ParsedUnit parsed = importResolver.parse(src, this::parse);
+	    tree = parsed.tree;
+	    imports = importResolver.resolveImports(parsed, this::parse);
+	}
+	else
+	    tree = parse(CharStreams.fromPath(src));
+
+	// The kept translations are copied, since they are added to a new unit
+	Map<SolidityParser.ContractDefinitionContext, String> keys = contractKeys(tree, imports);
+	Map<SolidityParser.ContractDefinitionContext, TypeDeclaration<?>> cached = new HashMap<>();
+	for (Map.Entry<SolidityParser.ContractDefinitionContext, String> key: keys.entrySet())
+	    if (unit.contracts.containsKey(key.getValue()))
+		cached.put(key.getKey(), unit.contracts.get(key.getValue()).clone());
+
+	CompilationUnit cu = translateMissing(tree, imports, cached);
+	TranslationMetrics.Sample time = new TranslationMetrics.Sample();
+
+	// Only the translations of the current contracts are kept
+	List<SolidityParser.ContractDefinitionContext> contracts = tree.contractDefinition();
+	unit.contracts.clear();
+	for (int i = 0; i < contracts.size(); i++)
+	    unit.contracts.put(keys.get(contracts.get(i)), cu.getType(i));
+
+	unit.imports.clear();
+	for (ParsedUnit imported: imports)
+	    unit.imports.add(imported.path);
+
+	if (splitContracts)
+	    Emitter.writeContracts(cu, Emitter.contractsDirectory(dst), true);
+	else
+	    Emitter.write(cu, dst);
+	current.record(TranslationMetrics.Phase.EMIT, time, countNodes(cu));
+
+	current.fileTranslated();
+	metrics.add(current);
+
+	return contracts.size() - cached.size();
+    }
+
+    // Translates the contracts of the unit that are not in cached, and puts them back in order with the cached ones
+    // (the cached translations are not translated again, but the refinement of the other contracts may need them)
+    private CompilationUnit translateMissing(SolidityParser.SourceUnitContext tree, List<ParsedUnit> imports,
+					     Map<SolidityParser.ContractDefinitionContext, TypeDeclaration<?>> cached) {
+	TranslationMetrics.Sample time = new TranslationMetrics.Sample();
+
+	List<SolidityParser.ContractDefinitionContext> contracts = tree.contractDefinition();
+	Set<String> missing = new HashSet<>();
+	for (SolidityParser.ContractDefinitionContext contract: contracts)
+	    if (!cached.containsKey(contract))
+		missing.add(contract.identifier().getText());
+
+	TranslateVisitor visitor = new TranslateVisitor();
+	visitor.setParallelContracts(parallelContracts);
+	visitor.setInferTypes(inferTypes);
+	visitor.setImportedUnits(trees(imports));
+	CompilationUnit partial = visitor.translateSourceUnit(tree, contract -> !cached.containsKey(contract));
+
+	NodeList<TypeDeclaration<?>> types = new NodeList<>();
+	int translated = 0;
+	for (SolidityParser.ContractDefinitionContext contract: contracts) {
+	    if (cached.containsKey(contract))
+		types.add(cached.get(contract));
+	    else
+		types.add(partial.getType(translated++));
+	}
+	CompilationUnit cu = new CompilationUnit(null, partial.getImports(), types, null);
+	if (partial.containsData(TypeEnvironment.UNTYPED_CONTRACTS))
+	    cu.setData(TypeEnvironment.UNTYPED_CONTRACTS, partial.getData(TypeEnvironment.UNTYPED_CONTRACTS));
+	time = current.record(TranslationMetrics.Phase.VISIT, time, countNodes(cu));
+
+	cu = SymbolSolver.refineTranslation(cu, missing, false, current);
+	current.record(TranslationMetrics.Phase.REFINE, time, countNodes(cu));
+
+	return cu;
+    }
+
+    // The key of each contract of the unit (see contractKey), the contracts of the imported files come before the contracts of the unit
+    private static Map<SolidityParser.ContractDefinitionContext, String> contractKeys(SolidityParser.SourceUnitContext tree, List<ParsedUnit> imports) {
+	List<SolidityParser.ContractDefinitionContext> visible = new ArrayList<>();
+	for (ParsedUnit unit: imports)
+	    visible.addAll(unit.tree.contractDefinition());
+	visible.addAll(tree.contractDefinition());
+
+	Map<SolidityParser.ContractDefinitionContext, String> keys = new LinkedHashMap<>();
+	for (SolidityParser.ContractDefinitionContext contract: tree.contractDefinition())
+	    keys.put(contract, contractKey(contract, visible));
+
+	return keys;
+    }
+
+    // Returns the text on which the translation of the contract depends: the contract itself, the contracts it inherits from,
+    // the previous contracts that define the modifiers it uses (the modifiers of a source unit are visible from all the next contracts),
+    // the contracts that define the structs and the enums it uses, and the contracts it uses (as the type of a variable or a parameter,
+    // or in new and in conversions), since the refinement resolves the calls of their functions and the accesses of their fields
+    private static String contractKey(SolidityParser.ContractDefinitionContext contract, List<SolidityParser.ContractDefinitionContext> contracts) {
+	Map<String, SolidityParser.ContractDefinitionContext> byName = new HashMap<>();
+	for (SolidityParser.ContractDefinitionContext elt: contracts)
+	    byName.put(elt.identifier().getText(), elt);
+
+	Set<SolidityParser.ContractDefinitionContext> dependencies = new LinkedHashSet<>();
+	List<SolidityParser.ContractDefinitionContext> toVisit = new ArrayList<>();
+	toVisit.add(contract);
+
+	while (!toVisit.isEmpty()) {
+	    SolidityParser.ContractDefinitionContext current = toVisit.remove(toVisit.size() - 1);
+	    if (!dependencies.add(current))
+		continue;
+
+	    for (SolidityParser.InheritanceSpecifierContext parent: current.inheritanceSpecifier())
+		if (byName.containsKey(parent.userDefinedTypeName().getText()))
+		    toVisit.add(byName.get(parent.userDefinedTypeName().getText()));
+
+	    for (ParseTree invocation: Trees.findAllRuleNodes(current, SolidityParser.RULE_modifierInvocation)) {
+		String modifier = ((SolidityParser.ModifierInvocationContext) invocation).identifier().getText();
+
+		for (SolidityParser.ContractDefinitionContext previous: contracts.subList(0, contracts.indexOf(current)))
+		    if (previous.contractPart().stream().anyMatch(part -> part.modifierDefinition() != null
+								   && part.modifierDefinition().identifier().getText().equals(modifier)))
+			toVisit.add(previous);
+	    }
+
+	    // The contracts whose name is used in the contract, and the ones that define a struct or an enum whose name is used
+	    // (as a type or in an expression)
+	    Set<String> names = new HashSet<>();
+	    for (ParseTree identifier: Trees.findAllRuleNodes(current, SolidityParser.RULE_identifier))
+		names.add(identifier.getText());
+
+	    for (SolidityParser.ContractDefinitionContext other: contracts)
+		if (other != current && (names.contains(other.identifier().getText())
+					 || other.contractPart().stream().anyMatch(part -> definesType(part, names))))
+		    toVisit.add(other);
+	}
+
+	StringBuilder key = new StringBuilder();
+	for (SolidityParser.ContractDefinitionContext dependency: dependencies)
+	    key.append(text(dependency)).append('\0');
+
+	return key.toString();
+    }
+
+    private static boolean definesType(SolidityParser.ContractPartContext part, Set<String> names) {
+	if (part.structDefinition() != null)
+	    return names.contains(part.structDefinition().identifier().getText());
+
+	return part.enumDefinition() != null && names.contains(part.enumDefinition().identifier().getText());
+    }
+
+    private static List<SolidityParser.SourceUnitContext> trees(List<ParsedUnit> units) {
+	List<SolidityParser.SourceUnitContext> trees = new ArrayList<>();
+	for (ParsedUnit unit: units)
+	    trees.add(unit.tree);
+
+	return trees;
+    }
+
+    private static long countNodes(ParseTree tree) {
+	long nodes = 1;
+	for (int i = 0; i < tree.getChildCount(); i++)
+	    nodes += countNodes(tree.getChild(i));
+
+	return nodes;
+    }
+
+    private static long countNodes(Node node) {
+	return node.stream().count();
+    }
+
+    // The source text of a rule (with the whitespaces and the comments)
+    private static String text(ParserRuleContext ctx) {
+	return ctx.start.getInputStream().getText(Interval.of(ctx.start.getStartIndex(), ctx.stop.getStopIndex()));
+    }
+
+    // The metrics of all the translations done by this translator
+    public TranslationMetrics getMetrics() {
+	return metrics;
+    }
+
+    // The metrics of the last translation
+    public TranslationMetrics getLastMetrics() {
+	return current;
+    }
+}
+
+// The translations of the contracts of a file kept in memory between two translations of the file (see Translator.translateIncrementally),
+// by the text they depend on, and the real paths of the files it imports
+class IncrementalUnit {
+    final Map<String, TypeDeclaration<?>> contracts = new HashMap<>();
+    final Set<Path> imports = new HashSet<>();
+}
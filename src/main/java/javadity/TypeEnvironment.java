@@ -0,0 +1,244 @@
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.Set;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.expr.*;
+
+// The Java types of the names visible in a contract, computed from its Solidity declarations (the state variables, the structs,
+// the enums, the functions, and the parameters and local variables of the function being translated).
+// It gives the type of the translation of an expression without resolving the Java code, so that the TranslateVisitor can emit
+// the conversions that SymbolSolver.correctArrayAccess and SymbolSolver.correctAddressTransferMethod would add.
+// The types are the names of the Java types (as in the translation, e.g. "Uint256" or "Address[]"), null if it is not known:
+// an inherited field for example.
+
+class TypeEnvironment {
+    static final String UINT = Helper.UINT;
+    static final String ADDRESS = "Address";
+    static final String BOOLEAN = "boolean";
+    static final String MAPPING = Helper.MAPPING;
+
+    // The names of the contracts of a unit for which a type could not be inferred (they need the SymbolSolver)
+    static final DataKey<Set<String>> UNTYPED_CONTRACTS = new DataKey<Set<String>>() {};
+
+    // Types of the fields of the contract (the state variables and the magic variables)
+    private final HashMap<String, String> fields = new HashMap<>();
+
+    // Types of the parameters and the local variables of the function being translated
+    private HashMap<String, String> locals = new HashMap<>();
+
+    // Types returned by the functions of the contract (and by the constructors of the structs)
+    private final HashMap<String, String> functions = new HashMap<>();
+
+    // Types of the fields of the classes that can be used in a dotted name (the structs, the enums and the blockchain classes)
+    private final HashMap<String, HashMap<String, String>> classes = new HashMap<>();
+
+    // False once the type of an expression that needed a conversion could not be inferred
+    private boolean complete = true;
+
+    TypeEnvironment() {
+	declare(fields, "now", UINT);
+	declare(fields, "msg", "Message");
+	declare(fields, "block", "Block");
+	declare(fields, "tx", "Transaction");
+	declare(fields, "destroyed", BOOLEAN);
+
+	declareField("Message", "sender", ADDRESS);
+	declareField("Message", "gas", UINT);
+	declareField("Message", "value", UINT);
+	declareField("Block", "coinbase", ADDRESS);
+	declareField("Block", "difficulty", UINT);
+	declareField("Block", "gaslimit", UINT);
+	declareField("Block", "number", UINT);
+	declareField("Block", "timestamp", UINT);
+	declareField("Transaction", "gasprice", UINT);
+	declareField("Transaction", "origin", ADDRESS);
+	declareField("Address", "balance", UINT);
+    }
+
+    void declareStateVariable(String name, String type) {
+	declare(fields, name, type);
+    }
+
+    void declareFunction(String name, String returnedType) {
+	declare(functions, name, returnedType);
+    }
+
+    void declareField(String className, String name, String type) {
+	declare(classes.computeIfAbsent(className, elt -> new HashMap<>()), name, type);
+    }
+
+    void declareLocal(String name, String type) {
+	declare(locals, name, type);
+    }
+
+    // Starts a new scope for the parameters and the local variables of a function, and returns the previous one
+    HashMap<String, String> enterScope() {
+	HashMap<String, String> previous = locals;
+	locals = new HashMap<>();
+
+	return previous;
+    }
+
+    void exitScope(HashMap<String, String> previous) {
+	locals = previous;
+    }
+
+    boolean isComplete() {
+	return complete;
+    }
+
+    // Returns the type of an expression whose translation depends on it, and records if it is not known
+    String infer(Expression expr) {
+	String type = typeOf(expr);
+	if (type == null)
+	    complete = false;
+
+	return type;
+    }
+
+    // Records that the type of the expression is not known if it is not the expected one: the argument of a modifier whose
+    // template was translated with the declared type of the parameter
+    void expect(Expression expr, String type) {
+	if (!Objects.equals(typeOf(expr), type))
+	    complete = false;
+    }
+
+    String typeOf(Expression expr) {
+	if (expr.isObjectCreationExpr())
+	    return expr.asObjectCreationExpr().getType().asString();
+	else if (expr.isNameExpr())
+	    return typeOfName(expr.asNameExpr().getNameAsString());
+	else if (expr.isArrayAccessExpr()) {
+	    String type = typeOf(expr.asArrayAccessExpr().getName());
+	    return type != null && type.endsWith("[]") ? type.substring(0, type.length() - 2) : null;
+	}
+	else if (expr.isMethodCallExpr())
+	    return typeOfCall(expr.asMethodCallExpr());
+	else if (expr.isAssignExpr())
+	    return typeOf(expr.asAssignExpr().getTarget());
+	else if (expr.isConditionalExpr()) {
+	    // The type of a conditional expression whose branches have different types is not inferred
+	    String type = typeOf(expr.asConditionalExpr().getThenExpr());
+	    return Objects.equals(type, typeOf(expr.asConditionalExpr().getElseExpr())) ? type : null;
+	}
+	else if (expr.isBooleanLiteralExpr() || expr.isBinaryExpr())
+	    return BOOLEAN;
+	else if (expr.isUnaryExpr() && expr.asUnaryExpr().getOperator() == UnaryExpr.Operator.LOGICAL_COMPLEMENT)
+	    return BOOLEAN;
+
+	return null;
+    }
+
+    // The type of a name, which can be dotted (see TranslateVisitor.visitDotExpression)
+    private String typeOfName(String name) {
+	String[] parts = name.split("\\.");
+	String type = typeOfVariable(parts[0]);
+
+	int i = 1;
+	// A name that is not a variable can be the name of an enum or of a struct
+	if (type == null && parts.length > 1 && classes.containsKey(parts[0]) && !fields.containsKey(parts[0]) && !locals.containsKey(parts[0]))
+	    type = typeOfField(parts[0], parts[i++]);
+
+	for (; i < parts.length && type != null; i++)
+	    type = typeOfField(type, parts[i]);
+
+	return type;
+    }
+
+    private String typeOfVariable(String name) {
+	if (!locals.containsKey(name))
+	    return fields.get(name);
+
+	// In Java, a local variable declared in a block does not hide the field outside of this block
+	String type = locals.get(name);
+	if (fields.containsKey(name) && !Objects.equals(fields.get(name), type))
+	    return null;
+
+	return type;
+    }
+
+    private String typeOfField(String type, String field) {
+	if (type.endsWith("[]"))
+	    return field.equals("length") ? "int" : null;
+
+	HashMap<String, String> classFields = classes.get(type);
+	return classFields != null ? classFields.get(field) : null;
+    }
+
+    // The type returned by a call, the methods of Uint256 and Address are the ones used by the translation
+    private String typeOfCall(MethodCallExpr call) {
+	String name = call.getNameAsString();
+	String scope;
+
+	if (call.getScope().isPresent())
+	    scope = typeOf(call.getScope().get());
+	else if (name.contains(".")) { // The name of a method called on a dotted name is dotted (see TranslateVisitor.visitFunctionCallExpression)
+	    scope = typeOfName(name.substring(0, name.lastIndexOf('.')));
+	    name = name.substring(name.lastIndexOf('.') + 1);
+	}
+	else if (name.equals("keccak256"))
+	    return UINT;
+	else if (name.equals("require"))
+	    return "void";
+	else
+	    return functions.get(name);
+
+	if (scope == null)
+	    return null;
+
+	if (isMapping(scope))
+	    return name.equals("get") || name.equals("set") ? mappingValueType(scope) : null;
+
+	if (scope.equals(UINT) || scope.equals(Helper.getUintImplementation())) {
+	    switch (name) {
+	    case "sum":
+	    case "sub":
+	    case "mul":
+		// The implementations of Uint256 return their own type, except Uint256Int with an operand of another type
+		// (its result may not fit in an int, see Uint256Int.widen)
+		if (scope.equals(Helper.UINT_INT) && call.getArguments().size() == 1) {
+		    String operand = typeOf(call.getArgument(0));
+		    return operand == null ? null : (operand.equals(Helper.UINT_INT) ? scope : UINT);
+		}
+		return scope;
+	    case "div":
+	    case "mod":
+	    case "keccak256":
+	    case "sha3":
+		return UINT;
+	    case "eq":
+	    case "le":
+	    case "gr":
+	    case "leq":
+	    case "geq":
+		return BOOLEAN;
+	    case "asInt":
+		return "int";
+	    }
+	}
+	else if (scope.equals(ADDRESS) && (name.equals("eq") || name.equals("send")))
+	    return BOOLEAN;
+
+	return null;
+    }
+
+    static boolean isMapping(String type) {
+	return type != null && type.startsWith(MAPPING + "<");
+    }
+
+    // The type of the values of a mapping type (e.g. Uint256 for "Mapping<Address, Uint256>"), the key type is a simple name
+    private static String mappingValueType(String type) {
+	int comma = type.indexOf(',');
+
+	return comma >= 0 ? type.substring(comma + 1, type.length() - 1).trim() : null;
+    }
+
+    // A name declared twice with different types has no known type
+    private static void declare(HashMap<String, String> names, String name, String type) {
+	if (names.containsKey(name) && !Objects.equals(names.get(name), type))
+	    names.put(name, null);
+	else
+	    names.put(name, type);
+    }
+}
@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.*;
+
+// Translates Solidity files, then translates them again each time they change, until the process is stopped. The directories
+// of the files and of the files they import are watched with a WatchService. The translations of the contracts are kept in memory
+// (see Translator.translateIncrementally): after a change, only the contracts whose text changed are translated again, with the
+// contracts that depend on them (their children, and the contracts that use their modifiers, their structs or their enums), in the
+// changed file and in the files that import it. The latency of each rebuild, from the first event of the change, is printed.
+// The translations are written as by a BatchTranslator.
+
+public class WatchTranslator {
+    private static final String SOLIDITY_EXTENSION = ".sol";
+
+    // Time waited for the other events of a change after each event (an editor often writes a file in several steps)
+    private static final long QUIET_PERIOD_MS = 20;
+
+    // The files are found again at each rebuild (see BatchTranslator.findSources), so that the new files are translated
+    private final List<String> arguments;
+
+    // Directory where the translations are written, if it is null each translation is written next to its source
+    private final Path outputDirectory;
+
+    private final Translator translator = new Translator();
+
+    // The translations kept for each file, by its real path
+    private final Map<Path, IncrementalUnit> units = new HashMap<>();
+
+    private final WatchService watcher;
+    private final Set<Path> watchedDirectories = new HashSet<>();
+
+    public WatchTranslator(List<String> arguments, Path outputDirectory) throws IOException {
+	this.arguments = arguments;
+	this.outputDirectory = outputDirectory;
+
+	watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    public void setImportResolver(ImportResolver importResolver) {
+	translator.setImportResolver(importResolver);
+    }
+
+    public void setParseReport(boolean parseReport) {
+	translator.setParseReport(parseReport);
+    }
+
+    public void setSplitContracts(boolean splitContracts) {
+	translator.setSplitContracts(splitContracts);
+    }
+
+    public void setParallelContracts(boolean parallelContracts) {
+	translator.setParallelContracts(parallelContracts);
+    }
+
+    public void setInferTypes(boolean inferTypes) {
+	translator.setInferTypes(inferTypes);
+    }
+
+    // Translates all the files, then translates them again when they change. Only returns if the thread is interrupted.
+    public void watch() throws IOException, InterruptedException {
+	rebuild(null, System.nanoTime());
+
+	while (true) {
+	    WatchKey key = watcher.take();
+	    long start = System.nanoTime();
+
+	    // The changed Solidity files (all the files if some events were lost), and whether a directory was created
+	    Set<Path> changed = new HashSet<>();
+	    boolean overflow = false;
+	    boolean newDirectory = false;
+
+	    for (; key != null; key = watcher.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) {
+		Path directory = (Path) key.watchable();
+
+		for (WatchEvent<?> event: key.pollEvents()) {
+		    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+			overflow = true;
+			continue;
+		    }
+
+		    Path file = directory.resolve((Path) event.context());
+		    if (file.toString().endsWith(SOLIDITY_EXTENSION))
+			changed.add(realPath(file));
+		    else if (Files.isDirectory(file))
+			newDirectory = true;
+		}
+
+		if (!key.reset())
+		    watchedDirectories.remove(directory);
+	    }
+
+	    if (overflow)
+		rebuild(null, start);
+	    else if (!changed.isEmpty() || newDirectory)
+		rebuild(changed, start);
+	}
+    }
+
+    // Translates the files that are new, that changed or that import a file that changed (all the files if changed is null),
+    // and watches their directories
+    private void rebuild(Set<Path> changed, long start) throws IOException {
+	boolean initial = units.isEmpty();
+
+	Map<Path, SourceFile> sources = new LinkedHashMap<>();
+	try {
+	    for (SourceFile file: BatchTranslator.findSources(arguments))
+		sources.put(realPath(file.path), file);
+	}
+	catch (IOException e) { // A file given on the command line was removed, the next change may add it back
+	    System.err.println(e);
+	}
+
+	// Forget the files that were removed
+	units.keySet().retainAll(sources.keySet());
+
+	int files = 0;
+	int failures = 0;
+	int translatedContracts = 0;
+	int reusedContracts = 0;
+
+	for (Map.Entry<Path, SourceFile> source: sources.entrySet()) {
+	    IncrementalUnit unit = units.get(source.getKey());
+	    if (unit != null && changed != null && !changed.contains(source.getKey()) && Collections.disjoint(unit.imports, changed))
+		continue;
+
+	    if (unit == null) {
+		unit = new IncrementalUnit();
+		units.put(source.getKey(), unit);
+	    }
+
+	    files++;
+	    try {
+		Path dst = BatchTranslator.destination(source.getValue(), outputDirectory);
+		if (dst.getParent() != null)
+		    Files.createDirectories(dst.getParent());
+
+		int translated = translator.translateIncrementally(source.getValue().path, dst, unit);
+		translatedContracts += translated;
+		reusedContracts += unit.contracts.size() - translated;
+	    }
+	    catch (Exception | AssertionError | StackOverflowError e) {
+		failures++;
+		System.err.println(source.getValue().path + ": " + e);
+	    }
+	}
+
+	watchDirectories(sources.keySet());
+
+	if (files > 0)
+	    System.out.printf("%s in %.2f ms: %d files translated (%d failed), %d contracts translated and %d reused%n",
+			      initial ? "Built" : "Rebuilt",
+			      (System.nanoTime() - start) / 1e6, files, failures, translatedContracts, reusedContracts);
+    }
+
+    // Watches the directories of the files and of the files they import, and all the directories given on the command line
+    private void watchDirectories(Set<Path> sources) throws IOException {
+	Set<Path> directories = new HashSet<>();
+	for (Path source: sources) {
+	    directories.add(source.getParent());
+
+	    if (units.containsKey(source))
+		for (Path imported: units.get(source).imports)
+		    directories.add(imported.getParent());
+	}
+
+	for (String argument: arguments) {
+	    Path path = Paths.get(argument);
+	    if (!Files.isDirectory(path))
+		continue;
+
+	    try (Stream<Path> paths = Files.walk(path)) {
+		paths.filter(Files::isDirectory).forEach(directory -> directories.add(realPath(directory)));
+	    }
+	}
+
+	for (Path directory: directories)
+	    if (directory != null && !watchedDirectories.contains(directory)) {
+		directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				   StandardWatchEventKinds.ENTRY_DELETE);
+		watchedDirectories.add(directory);
+	    }
+    }
+
+    // A removed file has no real path
+    private static Path realPath(Path path) {
+	try {
+	    return path.toRealPath();
+	}
+	catch (IOException e) {
+	    return path.toAbsolutePath().normalize();
+	}
+    }
+}
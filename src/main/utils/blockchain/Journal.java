@@ -0,0 +1,143 @@
+package blockchain;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// The writes to the state during the calls of the current thread: the state variables and the fields of the structs, the elements
+// of the arrays and of the mappings, and the balances. Each write records the value it overwrites, so that a call that throws
+// an exception gives back the state it started from: the values written since its checkpoint are restored in the reverse order,
+// in O(number of writes). The checkpoints are nested, a call made during another call (a contract calling another contract)
+// only reverts its own writes when it fails, and the writes of a call that succeeded are kept until the outermost call ends,
+// since they are reverted if this call fails.
+// Outside of a call (the constructors of the contracts, the setups of the simulations) nothing is recorded.
+// A call ends with the rollback or the commit of the checkpoint it started with: a checkpoint that is not the one of the innermost
+// running call throws an IllegalStateException, rather than reverting or keeping the writes of another call.
+
+public final class Journal {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private static final ThreadLocal<Journal> journals = ThreadLocal.withInitial(Journal::new);
+
+	// The writes, at the same index in the three arrays: the written object (a Journaled or an array), the name of the field,
+	// the key of the mapping or the index of the array, and the overwritten value
+	private Object[] targets = new Object[INITIAL_CAPACITY];
+	private Object[] keys = new Object[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int size;
+
+	// The checkpoints of the calls that are running, the innermost one last
+	private int[] checkpoints = new int[INITIAL_CAPACITY];
+	private int depth;
+
+	private Journal() {
+	}
+
+	// Starts a call, and returns its checkpoint (the writes it will record are the ones after it)
+	public static int checkpoint() {
+		Journal journal = journals.get();
+		if (journal.depth == journal.checkpoints.length)
+			journal.checkpoints = Arrays.copyOf(journal.checkpoints, journal.depth * 2);
+		journal.checkpoints[journal.depth++] = journal.size;
+
+		return journal.size;
+	}
+
+	// Restores the values overwritten since the checkpoint, the last one first
+	public static void rollback(int checkpoint) {
+		Journal journal = journals.get();
+		journal.check(checkpoint);
+
+		for (int i = journal.size - 1; i >= checkpoint; i--) {
+			Object target = journal.targets[i];
+			if (target instanceof Journaled)
+				((Journaled) target).restore(journal.keys[i], journal.values[i]);
+			else
+				Array.set(target, (Integer) journal.keys[i], journal.values[i]);
+		}
+		journal.size = checkpoint;
+	}
+
+	// Ends the call of the checkpoint, its writes are kept. Only the outermost call forgets them, in O(1): the references
+	// they hold are overwritten by the writes of the next calls.
+	public static void commit(int checkpoint) {
+		Journal journal = journals.get();
+		journal.check(checkpoint);
+
+		if (--journal.depth == 0)
+			journal.size = 0;
+	}
+
+	// The checkpoint is the one of the innermost running call, and its writes are still recorded
+	private void check(int checkpoint) {
+		if (depth == 0)
+			throw new IllegalStateException("The checkpoint " + checkpoint + " ends a call that is not running");
+		if (checkpoint != checkpoints[depth - 1] || checkpoint > size)
+			throw new IllegalStateException("The checkpoint " + checkpoint + " is not the one of the innermost running call ("
+							+ checkpoints[depth - 1] + ", with " + size + " writes recorded)");
+	}
+
+	// target.key = value, where old is the current value of target.key. Returns the value, so that the assignment is still an expression.
+	public static <T> T write(Journaled target, Object key, T old, T value) {
+		record(target, key, old);
+
+		return value;
+	}
+
+	// array[index] = value, where old is the current value of array[index]
+	public static <T> T writeElement(Object array, int index, T old, T value) {
+		record(array, index, old);
+
+		return value;
+	}
+
+	// target.key = value, where target is an expression that must only be evaluated once (a call, or an element of an array with
+	// an index that is a call): read and store are the accesses to target.key
+	public static <T extends Journaled, V> V assign(T target, Object key, Function<? super T, ? extends V> read,
+							BiConsumer<? super T, ? super V> store, V value) {
+		record(target, key, read.apply(target));
+		store.accept(target, value);
+
+		return value;
+	}
+
+	// array[index] = value, where array or index is an expression that must only be evaluated once
+	public static <T> T assignElement(T[] array, int index, T value) {
+		record(array, index, array[index]);
+		array[index] = value;
+
+		return value;
+	}
+
+	public static boolean assignElement(boolean[] array, int index, boolean value) {
+		record(array, index, array[index]);
+		array[index] = value;
+
+		return value;
+	}
+
+	public static void record(Journaled target, Object key, Object old) {
+		record((Object) target, key, old);
+	}
+
+	private static void record(Object target, Object key, Object old) {
+		Journal journal = journals.get();
+		if (journal.depth == 0)
+			return;
+
+		if (journal.size == journal.targets.length)
+			journal.grow();
+
+		journal.targets[journal.size] = target;
+		journal.keys[journal.size] = key;
+		journal.values[journal.size] = old;
+		journal.size++;
+	}
+
+	private void grow() {
+		targets = Arrays.copyOf(targets, targets.length * 2);
+		keys = Arrays.copyOf(keys, keys.length * 2);
+		values = Arrays.copyOf(values, values.length * 2);
+	}
+}
@@ -0,0 +1,9 @@
+package blockchain;
+
+// An object whose writes are recorded in the Journal: a contract (its state variables, and its balance as an Address),
+// a struct (its fields) or a mapping (its elements). The key is the name of the field, or the key of the element of a mapping.
+
+public interface Journaled {
+	// Writes back a value recorded by Journal.write, without recording it
+	void restore(Object key, Object value);
+}
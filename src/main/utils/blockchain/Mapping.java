@@ -0,0 +1,190 @@
+package blockchain;
+
+import java.util.function.Supplier;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+
+// A Solidity mapping: a hash table with open addressing (linear probing), whose missing keys have the zero value of the type of
+// its values. The keys are Uint256 (hashed by value, so that two implementations of the same number are the same key) or Address
+// (compared by address, a contract is not interned, see Address), the hash of each entry is kept so that a probe only compares
+// the keys whose hash is the same. The table holds the keys as objects for both kinds, the four implementations of Uint256 do not
+// share a primitive representation of their value.
+// A mapping of structs or of mappings creates the zero value of a missing key, and stores it, the first time the key is read,
+// since the value is modified in place (m[a][b] = v is translated into m.get(a).set(b, v)).
+// The writes are recorded in the Journal, a key that was missing before a write, or before a read that created its value, is
+// removed when the write is reverted.
+
+public final class Mapping<K, V> implements Journaled {
+	private static final int INITIAL_CAPACITY = 16; // A power of two
+
+	// The value recorded in the Journal when a write adds a key (restoring it removes the key)
+	static final Object ABSENT = new Object();
+
+	// The entries, at the same index in the three arrays (a null key is a free slot)
+	private Object[] keys = new Object[INITIAL_CAPACITY];
+	private Object[] values = new Object[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private int size;
+
+	// The value of the missing keys, or the function that creates it if it is modified in place
+	private final V zero;
+	private final Supplier<? extends V> create;
+
+	// The zero value is shared by all the missing keys (an Uint256, an Address, a boolean or a String)
+	public Mapping(V zero) {
+		this(zero, null);
+	}
+
+	private Mapping(V zero, Supplier<? extends V> create) {
+		this.zero = zero;
+		this.create = create;
+	}
+
+	// A mapping of structs or of mappings, the zero value of each key is created the first time it is read
+	public static <K, V> Mapping<K, V> nested(Supplier<? extends V> create) {
+		return new Mapping<>(null, create);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(K key) {
+		int hash = hash(key);
+		int slot = find(key, hash);
+
+		if (keys[slot] != null)
+			return (V) values[slot];
+		if (create == null)
+			return zero;
+
+		V value = create.get();
+		Journal.record(this, key, ABSENT);
+		insert(slot, key, hash, value);
+
+		return value;
+	}
+
+	// Returns the value, so that the translation of an assignment is still an expression
+	public V set(K key, V value) {
+		int hash = hash(key);
+		int slot = find(key, hash);
+
+		if (keys[slot] != null) {
+			Journal.record(this, key, values[slot]);
+			values[slot] = value;
+		}
+		else {
+			Journal.record(this, key, ABSENT);
+			insert(slot, key, hash, value);
+		}
+
+		return value;
+	}
+
+	@Override
+	public void restore(Object key, Object value) {
+		int hash = hash(key);
+		int slot = find(key, hash);
+
+		if (value == ABSENT)
+			remove(slot);
+		else if (keys[slot] != null)
+			values[slot] = value;
+		else
+			insert(slot, key, hash, value);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// The slot of the key, or the free slot where it would be inserted
+	private int find(Object key, int hash) {
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+
+		for (Object current = keys[slot]; current != null; current = keys[slot]) {
+			if (hashes[slot] == hash && sameKey(current, key))
+				break;
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void insert(int slot, Object key, int hash, Object value) {
+		keys[slot] = key;
+		values[slot] = value;
+		hashes[slot] = hash;
+
+		// The table is at most three quarters full
+		if (++size * 4 > keys.length * 3)
+			resize();
+	}
+
+	// Frees the slot, and moves back the entries that follow it in its cluster and could not be found any more
+	// (the ones whose probe starts at the slot or before it)
+	private void remove(int slot) {
+		if (keys[slot] == null)
+			return;
+
+		int mask = keys.length - 1;
+		keys[slot] = null;
+		values[slot] = null;
+		size--;
+
+		for (int next = (slot + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+			int start = hashes[next] & mask;
+			if (((next - start) & mask) < ((next - slot) & mask))
+				continue;
+
+			keys[slot] = keys[next];
+			values[slot] = values[next];
+			hashes[slot] = hashes[next];
+			keys[next] = null;
+			values[next] = null;
+			slot = next;
+		}
+	}
+
+	private void resize() {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+
+		keys = new Object[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		hashes = new int[oldKeys.length * 2];
+
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == null)
+				continue;
+
+			int slot = oldHashes[i] & mask;
+			while (keys[slot] != null)
+				slot = (slot + 1) & mask;
+
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			hashes[slot] = oldHashes[i];
+		}
+	}
+
+	// The hash of a key, whose bits are mixed since the small numbers (the most common keys) have consecutive hashes
+	private static int hash(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean sameKey(Object key, Object other) {
+		if (key == other)
+			return true;
+		if (key instanceof Uint256)
+			return other instanceof Uint256 && ((Uint256) key).eq((Uint256) other);
+		if (key instanceof Address)
+			return other instanceof Address && ((Address) key).eq((Address) other);
+
+		return key.equals(other);
+	}
+}
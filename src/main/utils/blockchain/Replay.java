@@ -0,0 +1,365 @@
+package blockchain;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Fixed;
+
+// Replays a trace of transactions (written by a TraceWriter) on the translated contracts: each transaction is the call of the
+// call_ method of a function of a contract, with the message, the block and the transaction of the trace. The trace is read
+// through memory-mapped windows of the file, the method of each function is looked up once per contract class, and the calls
+// reuse the same Message, Block and Transaction (the arguments of the calls are the only objects created by the replay).
+// The contracts are deployed by the caller and registered before the replay (Address.of does not find the contracts), the trace
+// refers to them by their address.
+// The number of transactions per second, and the latency of the calls of each function, are printed by report.
+//
+// The trace is big-endian: the magic number, the version, then records starting with their kind:
+//   ADDRESS  the 20 bytes of the next address of the trace (the addresses are numbered from 0 in the order of their records)
+//   FUNCTION the name of the next function (a short length and the UTF-8 bytes, the functions are numbered as the addresses)
+//   BLOCK    the block of the next calls: the number of its coinbase, its difficulty, gaslimit, number and timestamp
+//   CALL     the number of the contract, of the function, of msg.sender, msg.value, msg.gas, the number of tx.origin,
+//            tx.gasprice, then the number of arguments (a byte) and the arguments
+// A value starts with its type: an Uint256 (UINT64, on 8 bytes, or UINT256, on 32 bytes), the number of an address, a boolean
+// (FALSE or TRUE), or a string (as the name of a function).
+// The Uint256 are created with the implementation of the translation of the contracts (the operations between two implementations
+// are much slower than the ones of a single implementation). The implementation converts the values that are too large for it:
+// with Uint256Int, they are the Uint256Fixed its operations accept as operands (see Uint256Int.widen).
+
+public final class Replay {
+	static final int MAGIC = 0x4A445452; // "JDTR"
+	static final short VERSION = 1;
+
+	// The kinds of records
+	static final byte ADDRESS = 1;
+	static final byte FUNCTION = 2;
+	static final byte BLOCK = 3;
+	static final byte CALL = 4;
+
+	// The types of the values
+	static final byte UINT64 = 1;
+	static final byte UINT256 = 2;
+	static final byte ADDRESS_NUMBER = 3;
+	static final byte FALSE = 4;
+	static final byte TRUE = 5;
+	static final byte STRING = 6;
+
+	// The size of the mapped windows, and the size of the largest record (255 arguments that are strings of 65535 bytes):
+	// a new window is mapped before a record when the current one may end in the record
+	private static final long WINDOW = 1L << 30;
+	private static final int MAX_RECORD = 1 << 25;
+
+	private static final int SMALL_VALUES = 256;
+
+	private static final MethodType SPREAD_CALL = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	// An Uint256 of the implementation of the values, and the small values, which are created once
+	private final Uint256 implementation;
+	private final Uint256[] smallValues = new Uint256[SMALL_VALUES];
+
+	// The contracts of the traces, by address
+	private final Map<Address, Address> contracts = new HashMap<>();
+
+	// The addresses and the functions of the trace, by number
+	private final List<Address> addresses = new ArrayList<>();
+	private final List<TraceFunction> functions = new ArrayList<>();
+
+	// The environment of the calls, updated by each record
+	private final Message msg = new Message();
+	private final Block block = new Block();
+	private final Transaction tx = new Transaction(null, null);
+
+	// The methods that were called, with their latencies
+	private final List<CallTarget> targets = new ArrayList<>();
+
+	private long transactions;
+	private long elapsed;
+
+	// The window of the trace that is mapped, and its offset in the file
+	private FileChannel channel;
+	private long size;
+	private MappedByteBuffer buffer;
+	private long offset;
+
+	// The values are Uint256Int, the default implementation of the translation
+	public Replay() {
+		this(Uint256.ZERO);
+	}
+
+	// The values are of the implementation of the given value
+	public Replay(Uint256 implementation) {
+		this.implementation = implementation;
+		for (int i = 0; i < SMALL_VALUES; i++)
+			smallValues[i] = implementation.valueOf(i);
+	}
+
+	// The contract is the one of its address in the traces
+	public void register(Address contract) {
+		contracts.put(contract, contract);
+	}
+
+	// Replays the transactions of the trace, in order. The numbers of the addresses and of the functions are the ones of the trace,
+	// several traces can be replayed one after the other, their statistics are added.
+	public void replay(Path trace) throws IOException {
+		addresses.clear();
+		functions.clear();
+
+		long start = System.nanoTime();
+		try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+			this.channel = channel;
+			size = channel.size();
+			map(0);
+
+			if (buffer.getInt() != MAGIC)
+				throw new IOException(trace + " is not a trace");
+			if (buffer.getShort() != VERSION)
+				throw new IOException(trace + ": unsupported version of trace");
+
+			while (offset + buffer.position() < size) {
+				if (buffer.remaining() < MAX_RECORD && offset + buffer.limit() < size)
+					map(offset + buffer.position());
+
+				byte kind = buffer.get();
+				switch (kind) {
+				case ADDRESS:
+					Address address = Address.of(buffer.getLong(), buffer.getLong(), buffer.getInt());
+					addresses.add(contracts.getOrDefault(address, address));
+					break;
+				case FUNCTION:
+					functions.add(new TraceFunction(readString()));
+					break;
+				case BLOCK:
+					block.coinbase = readAddress();
+					block.difficulty = readUint();
+					block.gaslimit = readUint();
+					block.number = readUint();
+					block.timestamp = readUint();
+					break;
+				case CALL:
+					call();
+					break;
+				default:
+					throw new IOException(trace + ": unknown record " + kind + " at " + (offset + buffer.position() - 1));
+				}
+			}
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException(trace + " is truncated", e);
+		}
+		finally {
+			channel = null;
+			buffer = null;
+			elapsed += System.nanoTime() - start;
+		}
+	}
+
+	private void map(long position) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+		offset = position;
+	}
+
+	private void call() throws IOException {
+		Address contract = readAddress();
+		TraceFunction function = functions.get(buffer.getInt());
+		if (contract.getClass() == Address.class)
+			throw new IOException("The contract " + contract + " is not registered");
+
+		msg.sender = readAddress();
+		msg.value = readUint();
+		msg.gas = readUint();
+		tx.origin = readAddress();
+		tx.gasprice = readUint();
+
+		int count = buffer.get() & 0xFF;
+		CallTarget target = function.target(contract.getClass(), count, this);
+		Object[] arguments = target.arguments;
+		for (int i = 0; i < count; i++)
+			arguments[i] = readValue();
+
+		// invokeExact needs the exact type of the result, which is not used
+		long start = System.nanoTime();
+		try {
+			Object result = (Object) target.handle.invokeExact((Object) contract, arguments);
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) { // The call_ methods catch the exceptions of the calls
+			throw new IllegalStateException(e);
+		}
+		long latency = System.nanoTime() - start;
+
+		target.calls++;
+		target.time += latency;
+		if (latency > target.maxTime)
+			target.maxTime = latency;
+		transactions++;
+	}
+
+	// The method call_function of the class with count arguments, and the arguments of its calls (the last ones are the environment).
+	// It is only looked up once, the latencies of the calls of the method are added over the traces.
+	CallTarget resolve(Class<?> type, String function, int count) throws IOException {
+		for (CallTarget target: targets)
+			if (target.type == type && target.function.equals(function) && target.count == count)
+				return target;
+
+		for (Method method: type.getMethods()) {
+			if (!method.getName().equals("call_" + function) || method.getParameterCount() != count + 3)
+				continue;
+
+			try {
+				MethodHandle handle = MethodHandles.publicLookup().unreflect(method).asSpreader(Object[].class, count + 3).asType(SPREAD_CALL);
+				Object[] arguments = new Object[count + 3];
+				arguments[count] = msg;
+				arguments[count + 1] = block;
+				arguments[count + 2] = tx;
+
+				CallTarget target = new CallTarget(type, function, count, handle, arguments);
+				targets.add(target);
+
+				return target;
+			}
+			catch (IllegalAccessException e) {
+				throw new IOException("The function " + function + " of " + type.getName() + " can not be called", e);
+			}
+		}
+
+		throw new IOException(type.getName() + " has no function " + function + " with " + count + " arguments");
+	}
+
+	private Address readAddress() {
+		return addresses.get(buffer.getInt());
+	}
+
+	private Uint256 readUint() throws IOException {
+		return (Uint256) readValue();
+	}
+
+	private Object readValue() throws IOException {
+		byte type = buffer.get();
+		switch (type) {
+		case UINT64:
+			long value = buffer.getLong();
+			if (value >= 0 && value < SMALL_VALUES)
+				return smallValues[(int) value];
+			return value >= 0 && value <= Integer.MAX_VALUE ? implementation.valueOf((int) value) : wide(new Uint256Fixed(value, 0, 0, 0));
+		case UINT256:
+			long l3 = buffer.getLong();
+			long l2 = buffer.getLong();
+			long l1 = buffer.getLong();
+			return wide(new Uint256Fixed(buffer.getLong(), l1, l2, l3));
+		case ADDRESS_NUMBER:
+			return readAddress();
+		case FALSE:
+			return false;
+		case TRUE:
+			return true;
+		case STRING:
+			return readString();
+		default:
+			throw new IOException("Unknown type of value " + type + " at " + (offset + buffer.position() - 1));
+		}
+	}
+
+	// The value in the implementation: zero + value is of the implementation of zero when it can hold the value
+	private Uint256 wide(Uint256Fixed value) {
+		try {
+			return smallValues[0].sum(value);
+		}
+		catch (Exception e) { // An addition to zero does not overflow
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private String readString() {
+		byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public long getTransactions() {
+		return transactions;
+	}
+
+	// The time spent replaying the traces, with the reading of the traces
+	public long getElapsedNanos() {
+		return elapsed;
+	}
+
+	// Prints the number of transactions per second, and the latencies of the functions (the ones that took the most time first)
+	public void report(PrintStream out) {
+		out.printf("%d transactions in %.2f ms: %.0f transactions/s%n", transactions, elapsed / 1e6,
+			   elapsed > 0 ? transactions * 1e9 / elapsed : 0.0);
+
+		List<CallTarget> sorted = new ArrayList<>(targets);
+		sorted.sort(Comparator.comparingLong((CallTarget target) -> target.time).reversed());
+		for (CallTarget target: sorted)
+			if (target.calls > 0)
+				out.printf("  %s: %d calls, %.0f ns mean, %d ns max, %.2f ms%n", target.type.getSimpleName() + "." + target.function, target.calls,
+					   (double) target.time / target.calls, target.maxTime, target.time / 1e6);
+	}
+}
+
+// A function of a trace, and the methods it calls (one for each class of contract, and each number of arguments).
+// The method of the last call is tried first, a function is most often called on the same contract.
+final class TraceFunction {
+	final String name;
+	private final List<CallTarget> targets = new ArrayList<>();
+	private CallTarget last;
+
+	TraceFunction(String name) {
+		this.name = name;
+	}
+
+	CallTarget target(Class<?> type, int count, Replay replay) throws IOException {
+		if (last != null && last.type == type && last.count == count)
+			return last;
+
+		for (CallTarget target: targets)
+			if (target.type == type && target.count == count)
+				return last = target;
+
+		CallTarget target = replay.resolve(type, name, count);
+		targets.add(target);
+
+		return last = target;
+	}
+}
+
+// A call_ method, called with the arguments in an array (the same array for all its calls), and its latencies
+final class CallTarget {
+	final Class<?> type;
+	final String function;
+	final int count;
+	final MethodHandle handle;
+	final Object[] arguments;
+
+	long calls;
+	long time;
+	long maxTime;
+
+	CallTarget(Class<?> type, String function, int count, MethodHandle handle, Object[] arguments) {
+		this.type = type;
+		this.function = function;
+		this.count = count;
+		this.handle = handle;
+		this.arguments = arguments;
+	}
+}
@@ -0,0 +1,160 @@
+package blockchain;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+
+// Writes a trace of transactions, to be replayed by a Replay (see its format). The records of the addresses and of the functions
+// are written the first time they are used. A missing Uint256 (a null msg.gas for example) is written as zero.
+
+public final class TraceWriter implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_ARGUMENTS = 255;
+	private static final int MAX_STRING = 65535;
+
+	private final DataOutputStream out;
+
+	// The numbers of the addresses and of the functions written
+	private final Map<Address, Integer> addresses = new HashMap<>();
+	private final Map<String, Integer> functions = new HashMap<>();
+
+	public TraceWriter(Path path) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+		out.writeInt(Replay.MAGIC);
+		out.writeShort(Replay.VERSION);
+	}
+
+	// The block of the next calls
+	public void block(Address coinbase, Uint256 difficulty, Uint256 gaslimit, Uint256 number, Uint256 timestamp) throws IOException {
+		int coinbaseNumber = address(coinbase);
+
+		out.writeByte(Replay.BLOCK);
+		out.writeInt(coinbaseNumber);
+		writeUint(difficulty);
+		writeUint(gaslimit);
+		writeUint(number);
+		writeUint(timestamp);
+	}
+
+	// The call of contract.call_function(arguments, msg, block, tx), the arguments are Uint256, Address, Boolean or String
+	public void call(Address contract, String function, Address sender, Uint256 value, Uint256 gas, Address origin, Uint256 gasprice,
+			 Object... arguments) throws IOException {
+		if (arguments.length > MAX_ARGUMENTS)
+			throw new IllegalArgumentException("A call has at most " + MAX_ARGUMENTS + " arguments");
+
+		// The addresses and the function are written before the record of the call
+		int contractNumber = address(contract);
+		int functionNumber = function(function);
+		int senderNumber = address(sender);
+		int originNumber = address(origin);
+		for (Object argument: arguments)
+			if (argument instanceof Address)
+				address((Address) argument);
+
+		out.writeByte(Replay.CALL);
+		out.writeInt(contractNumber);
+		out.writeInt(functionNumber);
+		out.writeInt(senderNumber);
+		writeUint(value);
+		writeUint(gas);
+		out.writeInt(originNumber);
+		writeUint(gasprice);
+
+		out.writeByte(arguments.length);
+		for (Object argument: arguments)
+			writeValue(argument);
+	}
+
+	private int address(Address address) throws IOException {
+		Integer number = addresses.get(address);
+		if (number != null)
+			return number;
+
+		long high = 0;
+		long middle = 0;
+		int low = 0;
+		byte[] bytes = address.toBytes();
+		for (int i = 0; i < 8; i++) {
+			high = high << 8 | (bytes[i] & 0xFF);
+			middle = middle << 8 | (bytes[8 + i] & 0xFF);
+		}
+		for (int i = 16; i < 20; i++)
+			low = low << 8 | (bytes[i] & 0xFF);
+
+		out.writeByte(Replay.ADDRESS);
+		out.writeLong(high);
+		out.writeLong(middle);
+		out.writeInt(low);
+
+		addresses.put(address, addresses.size());
+		return addresses.size() - 1;
+	}
+
+	private int function(String name) throws IOException {
+		Integer number = functions.get(name);
+		if (number != null)
+			return number;
+
+		out.writeByte(Replay.FUNCTION);
+		writeString(name);
+
+		functions.put(name, functions.size());
+		return functions.size() - 1;
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if (value instanceof Uint256)
+			writeUint((Uint256) value);
+		else if (value instanceof Address) {
+			out.writeByte(Replay.ADDRESS_NUMBER);
+			out.writeInt(address((Address) value));
+		}
+		else if (value instanceof Boolean)
+			out.writeByte((Boolean) value ? Replay.TRUE : Replay.FALSE);
+		else if (value instanceof String) {
+			out.writeByte(Replay.STRING);
+			writeString((String) value);
+		}
+		else
+			throw new IllegalArgumentException("Can not write a " + (value == null ? null : value.getClass().getName()) + " in a trace");
+	}
+
+	// On 8 bytes if it fits in a long, on 32 bytes otherwise
+	private void writeUint(Uint256 value) throws IOException {
+		BigInteger integer = value == null ? BigInteger.ZERO : value.asBigInteger();
+
+		if (integer.bitLength() < Long.SIZE) {
+			out.writeByte(Replay.UINT64);
+			out.writeLong(integer.longValue());
+			return;
+		}
+
+		out.writeByte(Replay.UINT256);
+		for (int shift = 192; shift >= 0; shift -= Long.SIZE)
+			out.writeLong(integer.shiftRight(shift).longValue());
+	}
+
+	private void writeString(String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > MAX_STRING)
+			throw new IllegalArgumentException("A string of a trace has at most " + MAX_STRING + " bytes");
+
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
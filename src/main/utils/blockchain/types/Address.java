@@ -1,28 +1,126 @@
 package blockchain.types;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import blockchain.Journal;
+import blockchain.Journaled;
 import blockchain.Message;
 
-public class Address {
+// An account: its 160 bits address, packed into two longs and an int, and its balance. The accounts are interned (see of),
+// there is one account per address while it is used, and eq, equals and hashCode only read the three fields.
+// A contract is an Address (the translation of a contract extends it), it gets a new address when it is created. The contracts
+// are not interned: Address.of never returns a contract, Address.of(contract.toBytes()) is a different instance, an account with
+// its own balance, which is eq and equals to the contract but not ==. The code that looks up contracts by address keeps them itself
+// (see Replay.register).
+// The writes of the balance are recorded in the Journal (the translation of a contract restores its own state variables,
+// and the balance with super.restore).
+
+public class Address implements Journaled {
+
+  // The interned accounts, by address. They are held weakly, an account that is no longer used is collected, and removed from
+  // the registry by the next calls of of. An account that received a balance by transfer or send is held strongly (see pin),
+  // since of would give back a new account without it.
+  private static final ConcurrentHashMap<Key, Account> registry = new ConcurrentHashMap<>();
+  private static final ReferenceQueue<Address> collected = new ReferenceQueue<>();
+
+  // The number of contracts created, from which the address of the next one is computed
+  private static final AtomicLong contracts = new AtomicLong();
 
-  //@ public model \locset footprint = \set_union(\singleton(this.balance.footprint), \singleton(this.address));
+  private static final int ADDRESS_LENGTH = 20;
+
+  private static final String BALANCE = "balance";
+
+  //@ public model \locset footprint = \set_union(\singleton(this.balance.footprint), \set(this.high, this.middle, this.low));
   // public accessible \inv: footprint;
 
- //@ public invariant (\forall Address a; a.address.length == this.address.length);
- //@ public invariant (\forall Address a; a.address == this.address; a == this);
- public final byte[] address;
+ //@ public invariant (\forall Address a; a.account != null && this.account != null && a.high == this.high && a.middle == this.middle && a.low == this.low; a == this);
+ // The bytes 0 to 7 of the address (big-endian), the bytes 8 to 15 and the bytes 16 to 19
+ /*@ spec_public @*/ final long high;
+ /*@ spec_public @*/ final long middle;
+ /*@ spec_public @*/ final int low;
 
   //@ public invariant \invariant_for(balance);
   public Uint256 balance;
 
+  // The entry of the registry of an account, null for a contract
+  private /*@ spec_public @*/ Account account;
+
+  // The address zero, the default value of an address in Solidity
+  public static final Address ZERO = of(0, 0, 0);
 
-  public Address(byte[] address) {
-    this.address = address;
+
+  private Address(long high, long middle, int low) {
+    this.high = high;
+    this.middle = middle;
+    this.low = low;
     balance = Uint256.ZERO; // Initially the account starts with 0 wei
   }
 
-  public Address() {
-    this.address = new byte[0];
-    balance = Uint256.ZERO;
+  // A new contract. Ethereum derives its address from its creator and the nonce of its creator, which are not known here:
+  // it is the last 20 bytes of the Keccak-256 of the number of contracts created before it.
+  protected Address() {
+    this(contractAddress(contracts.getAndIncrement()));
+  }
+
+  private Address(Uint256Fixed hash) {
+    this(hash.limb(1) >>> 32 | hash.limb(2) << 32, hash.limb(0) >>> 32 | hash.limb(1) << 32, (int) hash.limb(0));
+  }
+
+  private static Uint256Fixed contractAddress(long number) {
+    return Keccak256.get().update(number).digest();
+  }
+
+  // The account whose address has the bytes high, middle and low (in big-endian), it is created when it is not used
+  public static Address of(long high, long middle, int low) {
+    for (Reference<? extends Address> reference; (reference = collected.poll()) != null; )
+      registry.remove(((Account) reference).key, reference);
+
+    Key key = new Key(high, middle, low);
+    while (true) {
+      Account interned = registry.get(key);
+      Address address = interned != null ? interned.get() : null;
+      if (address != null)
+        return address;
+
+      address = new Address(high, middle, low);
+      address.account = new Account(address, key);
+      if (interned == null ? registry.putIfAbsent(key, address.account) == null : registry.replace(key, interned, address.account))
+        return address;
+    }
+  }
+
+  // The address of the bytes, in big-endian (fewer than 20 bytes are the lowest bytes of the address, as an integer)
+  public static Address of(byte[] bytes) {
+    if (bytes.length > ADDRESS_LENGTH)
+      throw new IllegalArgumentException("An address has " + ADDRESS_LENGTH + " bytes, not " + bytes.length);
+
+    long high = 0;
+    long middle = 0;
+    int low = 0;
+    for (byte b: bytes) {
+      high = high << 8 | middle >>> 56;
+      middle = middle << 8 | (low >>> 24 & 0xFF);
+      low = low << 8 | (b & 0xFF);
+    }
+
+    return of(high, middle, low);
+  }
+
+  // The 20 bytes of the address, in big-endian
+  public byte[] toBytes() {
+    byte[] bytes = new byte[ADDRESS_LENGTH];
+    for (int i = 0; i < 8; i++) {
+      bytes[i] = (byte) (high >>> (56 - 8 * i));
+      bytes[8 + i] = (byte) (middle >>> (56 - 8 * i));
+    }
+    for (int i = 0; i < 4; i++)
+      bytes[16 + i] = (byte) (low >>> (24 - 8 * i));
+
+    return bytes;
   }
 
   /*@ public normal_behavior
@@ -63,10 +161,10 @@ public class Address {
     }
 
     // Deduct `price` from sender's account
-    sender.balance = sender.balance.sub(price);
+    sender.setBalance(sender.balance.sub(price));
 
     // Add `price` to receiver's account
-    this.balance = this.balance.sum(price);
+    this.setBalance(this.balance.sum(price));
   }
 
 
@@ -110,39 +208,66 @@ public class Address {
     }
 
     // Deduct `price` from sender's account
-    sender.balance = sender.balance.sub(price);
+    sender.setBalance(sender.balance.sub(price));
 
     // Add `price` to receiver's account
-    this.balance = this.balance.sum(price);
+    this.setBalance(this.balance.sum(price));
 
     // Everything went fine
     return true;
   }
 
+  private void setBalance(Uint256 value) {
+    balance = Journal.write(this, BALANCE, balance, value);
+    pin();
+  }
+
+  // An account is held strongly by the registry while its balance is not zero
+  private void pin() {
+    if (account != null)
+      account.pinned = balance.eq(Uint256.ZERO) ? null : this;
+  }
+
+  @Override
+  public void restore(Object key, Object value) {
+    if (!BALANCE.equals(key))
+      throw new IllegalArgumentException("An address has no field " + key);
+
+    balance = (Uint256) value;
+    pin();
+  }
+
   /*@ public normal_behavior
     @ requires \invariant_for(a);
-    @ ensures \result == (a.address.length == address.length &&
-    @ 	(\forall int i;0<=i && i < address.length; address[i] == a.address[i]));
-    @ accessible this.address, this.address[*], a.address, a.address[*];
+    @ ensures \result == (a.high == high && a.middle == middle && a.low == low);
+    @ accessible this.high, this.middle, this.low, a.high, a.middle, a.low;
     @ assignable \strictly_nothing;
     @*/
   public /*@ strictly_pure @*/ boolean eq(Address a) {
-      if (a.address.length != address.length) {
-        return false;
-      }
-      boolean result = true;  // TODO: what if a.address is longer than this.address
-
-      /*@ loop_invariant i>=0 && i<= this.address.length &&
-      @    \result == (\forall int j;0<=j && j < i; address[j] == a.address[j]);
-      @ assignable \strictly_nothing;
-      @ decreases address.length - i;
-      @*/
-      for (int i = 0; i < this.address.length ; i++) {
-        result = result && (address[i] == a.address[i]); // result = result && (address[i] == a[i])
-        if (!result) return false;
-      }
-      return result;
-    }
+    return this == a || (high == a.high && middle == a.middle && low == a.low);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Address && eq((Address) other);
+  }
+
+  // The bits of the three fields are mixed, the addresses that only differ by their lowest bytes have different hashes
+  @Override
+  public int hashCode() {
+    return hash(high, middle, low);
+  }
+
+  private static int hash(long high, long middle, int low) {
+    long hash = (high * 0x9E3779B97F4A7C15L + middle) * 0x9E3779B97F4A7C15L + low;
+
+    return (int) (hash ^ hash >>> 32);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("0x%016x%016x%08x", high, middle, low);
+  }
 
   // Auxiliary method that throws an exception
   // (the transaction will be aborted in the catch statement of the original call)
@@ -184,4 +309,38 @@ public class Address {
   public void payable(Message msg) throws Exception {
     this.transfer(msg.sender, msg.value);
   }
+
+  // The key of an account in the registry: its address, without a reference to the account
+  private static final class Key {
+    private final long high;
+    private final long middle;
+    private final int low;
+
+    Key(long high, long middle, int low) {
+      this.high = high;
+      this.middle = middle;
+      this.low = low;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key && high == ((Key) other).high && middle == ((Key) other).middle && low == ((Key) other).low;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash(high, middle, low);
+    }
+  }
+
+  // An interned account, and the account itself while it has a balance
+  private static final class Account extends WeakReference<Address> {
+    private final Key key;
+    private volatile Address pinned;
+
+    Account(Address address, Key key) {
+      super(address, collected);
+      this.key = key;
+    }
+  }
 }
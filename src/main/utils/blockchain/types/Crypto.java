@@ -1,12 +1,29 @@
 package blockchain.types;
 
+// The hash functions of Solidity. The hashes are computed by Keccak256 on the packed encoding of the arguments, and are
+// returned as Uint256Fixed (a hash does not fit in an Uint256Int).
+
 public class Crypto {
 
     static public Uint256 keccak256(Address addr) {
-	return Uint256.ZERO;
+	return Keccak256.get().update(addr).digest();
     }
 
     static public Uint256 keccak256(Uint256 x) {
-	return Uint256.ZERO;
+	return Keccak256.get().update(x).digest();
+    }
+
+    // keccak256(a, b, ...) of Solidity, the hash of the concatenation of the packed encodings of the values (an Uint256 is
+    // 32 bytes, an Address 20 bytes, a boolean 1 byte, a String its UTF-8 bytes)
+    static public Uint256 keccak256(Object... values) {
+	Keccak256 sponge = Keccak256.get();
+	for (Object value: values)
+	    sponge.updatePacked(value);
+
+	return sponge.digest();
+    }
+
+    static public Uint256 sha3(Object... values) {
+	return keccak256(values);
     }
 }
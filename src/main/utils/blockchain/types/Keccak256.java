@@ -0,0 +1,222 @@
+package blockchain.types;
+
+import java.nio.charset.StandardCharsets;
+
+// The Keccak-256 hash of Ethereum (the original Keccak padding, not the one of SHA3-256). Each thread has its own sponge
+// (see get), whose state is reused by all its hashes, so that a hash only allocates its result.
+// The data is absorbed as the packed encoding of Solidity: an Uint256 is its 32 bytes and an Address its 20 bytes, in big-endian.
+
+final class Keccak256 {
+	private static final int RATE = 136; // In bytes, for a 256 bits output
+	private static final int LANES = 25;
+	private static final int ROUNDS = 24;
+
+	private static final long[] ROUND_CONSTANTS = {
+		0x0000000000000001L, 0x0000000000008082L, 0x800000000000808AL, 0x8000000080008000L,
+		0x000000000000808BL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+		0x000000000000008AL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000AL,
+		0x000000008000808BL, 0x800000000000008BL, 0x8000000000008089L, 0x8000000000008003L,
+		0x8000000000008002L, 0x8000000000000080L, 0x000000000000800AL, 0x800000008000000AL,
+		0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+	};
+
+	private static final ThreadLocal<Keccak256> sponges = ThreadLocal.withInitial(Keccak256::new);
+
+	private final long[] state = new long[LANES];
+
+	// The bytes of the current lane that are not xored in the state yet, and the number of bytes absorbed in the current block
+	private long lane;
+	private int position;
+
+	private Keccak256() {
+	}
+
+	// The sponge of the current thread, ready for a new hash
+	static Keccak256 get() {
+		Keccak256 sponge = sponges.get();
+		sponge.reset();
+
+		return sponge;
+	}
+
+	private void reset() {
+		for (int i = 0; i < LANES; i++)
+			state[i] = 0;
+		lane = 0;
+		position = 0;
+	}
+
+	Keccak256 update(byte b) {
+		lane |= (b & 0xFFL) << (8 * (position & 7));
+		position++;
+
+		if ((position & 7) == 0) {
+			state[(position >> 3) - 1] ^= lane;
+			lane = 0;
+
+			if (position == RATE) {
+				permute();
+				position = 0;
+			}
+		}
+
+		return this;
+	}
+
+	Keccak256 update(byte[] bytes) {
+		for (byte b: bytes)
+			update(b);
+
+		return this;
+	}
+
+	// The 8 bytes of the value, in big-endian (a lane is little-endian, so an aligned value is xored at once)
+	Keccak256 update(long value) {
+		if ((position & 7) != 0) {
+			for (int shift = 56; shift >= 0; shift -= 8)
+				update((byte) (value >>> shift));
+			return this;
+		}
+
+		state[position >> 3] ^= Long.reverseBytes(value);
+		position += 8;
+		if (position == RATE) {
+			permute();
+			position = 0;
+		}
+
+		return this;
+	}
+
+	// The 32 bytes of the value, in big-endian
+	Keccak256 update(Uint256 value) {
+		if (value instanceof Uint256Int && value.asInt() >= 0)
+			return update(0L).update(0L).update(0L).update((long) value.asInt());
+		if (value instanceof Uint256Adaptive && ((Uint256Adaptive) value).isSmall())
+			return update(0L).update(0L).update(0L).update(((Uint256Adaptive) value).smallValue());
+
+		Uint256Fixed fixed = Uint256Fixed.of(value);
+		return update(fixed.limb(3)).update(fixed.limb(2)).update(fixed.limb(1)).update(fixed.limb(0));
+	}
+
+	// The 20 bytes of the address
+	Keccak256 update(Address address) {
+		update(address.high).update(address.middle);
+		for (int shift = 24; shift >= 0; shift -= 8)
+			update((byte) (address.low >>> shift));
+
+		return this;
+	}
+
+	// The packed encoding of a value: an Uint256, an Address, a boolean (1 byte), a String (its UTF-8 bytes) or bytes
+	Keccak256 updatePacked(Object value) {
+		if (value instanceof Uint256)
+			return update((Uint256) value);
+		if (value instanceof Address)
+			return update((Address) value);
+		if (value instanceof Boolean)
+			return update((byte) ((Boolean) value ? 1 : 0));
+		if (value instanceof String)
+			return update(((String) value).getBytes(StandardCharsets.UTF_8));
+		if (value instanceof byte[])
+			return update((byte[]) value);
+
+		throw new IllegalArgumentException("Can not hash a " + (value == null ? null : value.getClass().getName()));
+	}
+
+	// Pads the data, and returns the first 32 bytes of the state as a big-endian number
+	Uint256Fixed digest() {
+		state[position >> 3] ^= lane ^ (0x01L << (8 * (position & 7)));
+		state[(RATE >> 3) - 1] ^= 0x80L << 56;
+		permute();
+
+		return new Uint256Fixed(Long.reverseBytes(state[3]), Long.reverseBytes(state[2]), Long.reverseBytes(state[1]),
+					Long.reverseBytes(state[0]));
+	}
+
+	// The Keccak-f[1600] permutation, unrolled on local variables (a lane aXY is at x + 5 * y in the state)
+	private void permute() {
+		long a00 = state[0], a10 = state[1], a20 = state[2], a30 = state[3], a40 = state[4];
+		long a01 = state[5], a11 = state[6], a21 = state[7], a31 = state[8], a41 = state[9];
+		long a02 = state[10], a12 = state[11], a22 = state[12], a32 = state[13], a42 = state[14];
+		long a03 = state[15], a13 = state[16], a23 = state[17], a33 = state[18], a43 = state[19];
+		long a04 = state[20], a14 = state[21], a24 = state[22], a34 = state[23], a44 = state[24];
+
+		for (int round = 0; round < ROUNDS; round++) {
+			// Theta
+			long c0 = a00 ^ a01 ^ a02 ^ a03 ^ a04;
+			long c1 = a10 ^ a11 ^ a12 ^ a13 ^ a14;
+			long c2 = a20 ^ a21 ^ a22 ^ a23 ^ a24;
+			long c3 = a30 ^ a31 ^ a32 ^ a33 ^ a34;
+			long c4 = a40 ^ a41 ^ a42 ^ a43 ^ a44;
+			long d0 = c4 ^ Long.rotateLeft(c1, 1);
+			long d1 = c0 ^ Long.rotateLeft(c2, 1);
+			long d2 = c1 ^ Long.rotateLeft(c3, 1);
+			long d3 = c2 ^ Long.rotateLeft(c4, 1);
+			long d4 = c3 ^ Long.rotateLeft(c0, 1);
+
+			// Rho and pi: bXY is the lane moved to x + 5 * y
+			long b00 = a00 ^ d0;
+			long b10 = Long.rotateLeft(a11 ^ d1, 44);
+			long b20 = Long.rotateLeft(a22 ^ d2, 43);
+			long b30 = Long.rotateLeft(a33 ^ d3, 21);
+			long b40 = Long.rotateLeft(a44 ^ d4, 14);
+			long b01 = Long.rotateLeft(a30 ^ d3, 28);
+			long b11 = Long.rotateLeft(a41 ^ d4, 20);
+			long b21 = Long.rotateLeft(a02 ^ d0, 3);
+			long b31 = Long.rotateLeft(a13 ^ d1, 45);
+			long b41 = Long.rotateLeft(a24 ^ d2, 61);
+			long b02 = Long.rotateLeft(a10 ^ d1, 1);
+			long b12 = Long.rotateLeft(a21 ^ d2, 6);
+			long b22 = Long.rotateLeft(a32 ^ d3, 25);
+			long b32 = Long.rotateLeft(a43 ^ d4, 8);
+			long b42 = Long.rotateLeft(a04 ^ d0, 18);
+			long b03 = Long.rotateLeft(a40 ^ d4, 27);
+			long b13 = Long.rotateLeft(a01 ^ d0, 36);
+			long b23 = Long.rotateLeft(a12 ^ d1, 10);
+			long b33 = Long.rotateLeft(a23 ^ d2, 15);
+			long b43 = Long.rotateLeft(a34 ^ d3, 56);
+			long b04 = Long.rotateLeft(a20 ^ d2, 62);
+			long b14 = Long.rotateLeft(a31 ^ d3, 55);
+			long b24 = Long.rotateLeft(a42 ^ d4, 39);
+			long b34 = Long.rotateLeft(a03 ^ d0, 41);
+			long b44 = Long.rotateLeft(a14 ^ d1, 2);
+
+			// Chi
+			a00 = b00 ^ (~b10 & b20);
+			a10 = b10 ^ (~b20 & b30);
+			a20 = b20 ^ (~b30 & b40);
+			a30 = b30 ^ (~b40 & b00);
+			a40 = b40 ^ (~b00 & b10);
+			a01 = b01 ^ (~b11 & b21);
+			a11 = b11 ^ (~b21 & b31);
+			a21 = b21 ^ (~b31 & b41);
+			a31 = b31 ^ (~b41 & b01);
+			a41 = b41 ^ (~b01 & b11);
+			a02 = b02 ^ (~b12 & b22);
+			a12 = b12 ^ (~b22 & b32);
+			a22 = b22 ^ (~b32 & b42);
+			a32 = b32 ^ (~b42 & b02);
+			a42 = b42 ^ (~b02 & b12);
+			a03 = b03 ^ (~b13 & b23);
+			a13 = b13 ^ (~b23 & b33);
+			a23 = b23 ^ (~b33 & b43);
+			a33 = b33 ^ (~b43 & b03);
+			a43 = b43 ^ (~b03 & b13);
+			a04 = b04 ^ (~b14 & b24);
+			a14 = b14 ^ (~b24 & b34);
+			a24 = b24 ^ (~b34 & b44);
+			a34 = b34 ^ (~b44 & b04);
+			a44 = b44 ^ (~b04 & b14);
+
+			// Iota
+			a00 ^= ROUND_CONSTANTS[round];
+		}
+
+		state[0] = a00; state[1] = a10; state[2] = a20; state[3] = a30; state[4] = a40;
+		state[5] = a01; state[6] = a11; state[7] = a21; state[8] = a31; state[9] = a41;
+		state[10] = a02; state[11] = a12; state[12] = a22; state[13] = a32; state[14] = a42;
+		state[15] = a03; state[16] = a13; state[17] = a23; state[18] = a33; state[19] = a43;
+		state[20] = a04; state[21] = a14; state[22] = a24; state[23] = a34; state[24] = a44;
+	}
+}
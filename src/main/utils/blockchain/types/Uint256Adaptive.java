@@ -0,0 +1,214 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+
+// An Uint256 that is a long as long as its value fits in one, and an Uint256Fixed otherwise. Most of the values of a contract
+// (counters, indexes, small balances) fit in a long: their operations are done on the long, with Math.addExact and
+// Math.multiplyExact to detect the overflows, and only the operations that overflow (or that have a wide operand) are done on
+// the four limbs of an Uint256Fixed. A wide result that fits in a long again is demoted back to a long.
+// The arithmetic is the one of the EVM, as for Uint256Fixed.
+
+public class Uint256Adaptive implements Uint256 {
+	// The values below SMALL_VALUES are created once
+	private static final int SMALL_VALUES = 256;
+	private static final Uint256Adaptive[] smallValues = new Uint256Adaptive[SMALL_VALUES];
+	static {
+		for (int i = 0; i < SMALL_VALUES; i++)
+			smallValues[i] = new Uint256Adaptive(i, null);
+	}
+
+	// The value if wide is null (it is never negative), otherwise the value is wide
+	private final long small;
+	private final Uint256Fixed wide;
+
+	public Uint256Adaptive(int value) {
+		if (value < 0)
+			throw new ArithmeticException("A Uint256 can not be negative: " + value);
+		this.small = value;
+		this.wide = null;
+	}
+
+	public Uint256Adaptive() {
+		this(0);
+	}
+
+	private Uint256Adaptive(long small, Uint256Fixed wide) {
+		this.small = small;
+		this.wide = wide;
+	}
+
+	// A value that fits in a long (it must not be negative)
+	static Uint256Adaptive valueOf(long value) {
+		return value < SMALL_VALUES ? smallValues[(int) value] : new Uint256Adaptive(value, null);
+	}
+
+	// A wide value, demoted to a long if it fits in one
+	static Uint256Adaptive valueOf(Uint256Fixed value) {
+		return value.fitsPositiveLong() ? valueOf(value.low()) : new Uint256Adaptive(0, value);
+	}
+
+	// The value modulo 2^256 (a negative value is taken in two's complement)
+	public static Uint256Adaptive valueOf(BigInteger value) {
+		return valueOf(Uint256Fixed.valueOf(value));
+	}
+
+	static Uint256Adaptive of(Uint256 value) {
+		if (value instanceof Uint256Adaptive)
+			return (Uint256Adaptive) value;
+
+		return valueOf(Uint256Fixed.of(value));
+	}
+
+	boolean isSmall() {
+		return wide == null;
+	}
+
+	long smallValue() {
+		return small;
+	}
+
+	// The value as an Uint256Fixed, to compute an operation on the wide representation
+	Uint256Fixed toFixed() {
+		return wide != null ? wide : new Uint256Fixed(small, 0, 0, 0);
+	}
+
+	@Override
+	public Uint256Adaptive sum(Uint256 value) {
+		Uint256Adaptive other = of(value);
+		if (isSmall() && other.isSmall()) {
+			try {
+				return valueOf(Math.addExact(small, other.small));
+			}
+			catch (ArithmeticException e) { // The sum needs more than 63 bits
+			}
+		}
+
+		return valueOf(toFixed().sum(other.toFixed()));
+	}
+
+	@Override
+	public Uint256Adaptive sub(Uint256 value) {
+		Uint256Adaptive other = of(value);
+		if (isSmall() && other.isSmall() && small >= other.small)
+			return valueOf(small - other.small);
+
+		// The difference wraps around (or an operand is wide)
+		return valueOf(toFixed().sub(other.toFixed()));
+	}
+
+	@Override
+	public Uint256Adaptive mul(Uint256 value) {
+		Uint256Adaptive other = of(value);
+		if (isSmall() && other.isSmall()) {
+			try {
+				return valueOf(Math.multiplyExact(small, other.small));
+			}
+			catch (ArithmeticException e) { // The product needs more than 63 bits
+			}
+		}
+
+		return valueOf(toFixed().mul(other.toFixed()));
+	}
+
+	@Override
+	public Uint256 div(Uint256 value) {
+		Uint256Adaptive other = of(value);
+		if (isSmall() && other.isSmall())
+			return valueOf(small / other.small);
+
+		return valueOf((Uint256Fixed) toFixed().div(other.toFixed()));
+	}
+
+	@Override
+	public Uint256 mod(Uint256 value) {
+		Uint256Adaptive other = of(value);
+		if (isSmall() && other.isSmall())
+			return valueOf(small % other.small);
+
+		return valueOf((Uint256Fixed) toFixed().mod(other.toFixed()));
+	}
+
+	// this == value
+	@Override
+	public boolean eq(Uint256 value) {
+		return compareTo(of(value)) == 0;
+	}
+
+	// this < value
+	@Override
+	public boolean le(Uint256 value) {
+		return compareTo(of(value)) < 0;
+	}
+
+	// this > value
+	@Override
+	public boolean gr(Uint256 value) {
+		return compareTo(of(value)) > 0;
+	}
+
+	// this >= value
+	@Override
+	public boolean geq(Uint256 value) {
+		return compareTo(of(value)) >= 0;
+	}
+
+	// this <= value
+	@Override
+	public boolean leq(Uint256 value) {
+		return compareTo(of(value)) <= 0;
+	}
+
+	// A wide value is always greater than a small one
+	private int compareTo(Uint256Adaptive other) {
+		if (isSmall() && other.isSmall())
+			return Long.compare(small, other.small);
+		if (isSmall() != other.isSmall())
+			return isSmall() ? -1 : 1;
+
+		return wide.le(other.wide) ? -1 : (wide.eq(other.wide) ? 0 : 1);
+	}
+
+	@Override
+	public int asInt() {
+		if (!isSmall() || small > Integer.MAX_VALUE)
+			throw new ArithmeticException(this + " does not fit in an int");
+
+		return (int) small;
+	}
+
+	@Override
+	public BigInteger asBigInteger() {
+		return isSmall() ? BigInteger.valueOf(small) : wide.asBigInteger();
+	}
+
+	@Override
+	public Uint256 valueOf(int i) {
+		return new Uint256Adaptive(i);
+	}
+
+	@Override
+	public Uint256 keccak256() {
+		return valueOf(Keccak256.get().update(this).digest());
+	}
+
+	@Override
+	public Uint256 sha3() {
+		return keccak256();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Uint256 && eq((Uint256) other);
+	}
+
+	// The same hash as the Uint256Fixed of the same value
+	@Override
+	public int hashCode() {
+		return toFixed().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return isSmall() ? Long.toString(small) : wide.toString();
+	}
+}
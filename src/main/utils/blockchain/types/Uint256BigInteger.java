@@ -3,9 +3,18 @@ package blockchain.types;
 import java.math.BigInteger;
 
 public class Uint256BigInteger implements Uint256 {
-	public final BigInteger MAX = new BigInteger("115792089237316195423570985008687907853269984665640564039457584007913129639935"); // 2^256 - 1
-	public final BigInteger MIN = BigInteger.ZERO; // 0
-	public final BigInteger ZERO = BigInteger.ZERO; // 0
+	public static final BigInteger MAX = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE); // 2^256 - 1
+	public static final BigInteger MIN = BigInteger.ZERO; // 0
+	public static final BigInteger ZERO = BigInteger.ZERO; // 0
+
+	// The values below SMALL_VALUES (2^SMALL_BITS) are created once (counters, indexes and booleans are mostly small)
+	private static final int SMALL_BITS = 8;
+	private static final int SMALL_VALUES = 1 << SMALL_BITS;
+	private static final Uint256BigInteger[] smallValues = new Uint256BigInteger[SMALL_VALUES];
+	static {
+		for (int i = 0; i < SMALL_VALUES; i++)
+			smallValues[i] = new Uint256BigInteger(BigInteger.valueOf(i));
+	}
 
 	private final BigInteger number;
 
@@ -15,60 +24,105 @@ public class Uint256BigInteger implements Uint256 {
 	 */
 	public Uint256BigInteger(String value) throws Exception {
 		BigInteger bigValue = new BigInteger(value);
-		if ((bigValue.compareTo(MAX) == 1) || (bigValue.compareTo(BigInteger.ZERO) == -1)) {
+		if (!inRange(bigValue)) {
 			throw new Exception();
 		}
-		this.number = new BigInteger(value);
+		this.number = bigValue;
+	}
+
+	/**
+	 * @param value the value, between 0 and 2^256 - 1 (an ArithmeticException is thrown otherwise)
+	 *
+	 */
+	public Uint256BigInteger(BigInteger value) {
+		if (!inRange(value)) {
+			throw new ArithmeticException(value + " is not an uint256");
+		}
+		this.number = value;
+	}
+
+	// The value modulo 2^256 (the results of sum, sub and mul wrap around as in the EVM)
+	public static Uint256BigInteger valueOf(BigInteger value) {
+		if (!inRange(value)) {
+			value = value.and(MAX); // The two's complement of a negative value is its value modulo 2^256
+		}
+		if (value.bitLength() <= SMALL_BITS) {
+			return smallValues[value.intValue()];
+		}
+		return new Uint256BigInteger(value);
+	}
+
+	// The operand of an operation: an Uint256BigInteger is used as it is, the other implementations are converted (an Uint256Int
+	// is sign-extended, as its int can have overflowed), so that any two implementations can be mixed
+	static Uint256BigInteger of(Uint256 value) {
+		if (value instanceof Uint256BigInteger) {
+			return (Uint256BigInteger) value;
+		}
+		if (value instanceof Uint256Int) {
+			return valueOf(BigInteger.valueOf(value.asInt()));
+		}
+		return valueOf(value.asBigInteger());
+	}
+
+	// A range check on the bit length, without comparing the value to MAX
+	private static boolean inRange(BigInteger value) {
+		return value.signum() >= 0 && value.bitLength() <= 256;
 	}
 
 	public Uint256 sum(Uint256 value) throws Exception {
-		BigInteger temp = this.number.add(((Uint256BigInteger) value).asBigInteger());
-		return new Uint256BigInteger(temp.toString());
+		return valueOf(this.number.add(of(value).number));
 	}
 
 	public Uint256 sub(Uint256 value) throws Exception {
-		BigInteger temp = this.number.subtract(((Uint256BigInteger) value).asBigInteger());
-		return new Uint256BigInteger(temp.toString());
+		return valueOf(this.number.subtract(of(value).number));
 	}
 
 	public Uint256 mul(Uint256 value) throws Exception {
-		BigInteger temp = this.number.multiply(((Uint256BigInteger) value).asBigInteger());
-		return new Uint256BigInteger(temp.toString());
+		return valueOf(this.number.multiply(of(value).number));
 	}
 
 	public Uint256 div(Uint256 value) throws Exception {
-		BigInteger temp = this.number.divide(((Uint256BigInteger) value).asBigInteger());
-		return new Uint256BigInteger(temp.toString());
+		return valueOf(this.number.divide(of(value).number));
 	}
 
 	public Uint256 mod(Uint256 value) throws Exception {
-		BigInteger temp = this.number.mod(((Uint256BigInteger) value).asBigInteger());
-		return new Uint256BigInteger(temp.toString());
+		return valueOf(this.number.mod(of(value).number));
 	}
 
 	// this == value
 	public /*@ pure @*/ boolean eq(Uint256 value) {
-		return this.number.compareTo(((Uint256BigInteger) value).asBigInteger()) == 0; // 0: equal;
+		return this.number.compareTo(of(value).number) == 0; // 0: equal;
 	}
 
 	// this < value
 	public /*@ pure @*/ boolean le(Uint256 value) {
-		return this.number.compareTo(((Uint256BigInteger) value).asBigInteger()) == -1; // 1: greater;
+		return this.number.compareTo(of(value).number) == -1; // 1: greater;
 	}
 
 	// this > value
 	public /*@ pure @*/ boolean gr(Uint256 value) {
-		return this.number.compareTo(((Uint256BigInteger) value).asBigInteger()) == 1; // -1: less;
+		return this.number.compareTo(of(value).number) == 1; // -1: less;
 	}
 
 	// this >= value
 	public /*@ pure @*/ boolean geq(Uint256 value) {
-		return this.number.compareTo(((Uint256BigInteger) value).asBigInteger()) >= 0; // 0: equal; 1: greater
+		return this.number.compareTo(of(value).number) >= 0; // 0: equal; 1: greater
 	}
 
 	// this <= value
 	public /*@ pure @*/ boolean leq(Uint256 value) {
-		return this.number.compareTo(((Uint256BigInteger) value).asBigInteger()) <= 0; // -1: less; 0: equal
+		return this.number.compareTo(of(value).number) <= 0; // -1: less; 0: equal
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Uint256 && eq((Uint256) other);
+	}
+
+	// The same hash as the Uint256Fixed of the same value
+	@Override
+	public int hashCode() {
+		return Uint256Fixed.valueOf(number).hashCode();
 	}
 
 	// @override
@@ -102,20 +156,21 @@ public class Uint256BigInteger implements Uint256 {
 
 	@Override
 	public Uint256 valueOf(int i) {
-		return new Uint256Int(i);
+		if (i < 0) {
+			throw new ArithmeticException(i + " is not an uint256");
+		}
+		return valueOf(BigInteger.valueOf(i));
 	}
 
 
 	@Override
 	public Uint256 keccak256() {
-		// TODO: implement
-		return Uint256.ZERO;
+		return valueOf(Keccak256.get().update(this).digest().asBigInteger());
 	}
 
 
 	@Override
 	public Uint256 sha3() {
-		// TODO: implement
-		return Uint256.ZERO;
+		return keccak256();
 	}
 }
@@ -0,0 +1,399 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+
+// An Uint256 stored in four longs (the limbs, from the least significant one), with the arithmetic of the EVM: sum, sub
+// and mul wrap around modulo 2^256, and dividing by zero throws an ArithmeticException. Unlike Uint256Int, it never
+// overflows before 2^256, and unlike Uint256BigInteger, an operation only allocates its result (and, for mul, div and
+// mod on operands that do not fit in a long, a few temporary arrays).
+// The operands that are not Uint256Fixed (e.g. Uint256.ZERO) are converted first.
+
+public class Uint256Fixed implements Uint256 {
+	private static final int LIMBS = 4;
+	private static final long INT_MASK = 0xFFFFFFFFL;
+
+	private final long l0;
+	private final long l1;
+	private final long l2;
+	private final long l3;
+
+	public Uint256Fixed(int value) {
+		if (value < 0)
+			throw new ArithmeticException("A Uint256 can not be negative: " + value);
+		this.l0 = value;
+		this.l1 = 0;
+		this.l2 = 0;
+		this.l3 = 0;
+	}
+
+	public Uint256Fixed() {
+		this(0L, 0L, 0L, 0L);
+	}
+
+	// The limbs, from the least significant one
+	public Uint256Fixed(long l0, long l1, long l2, long l3) {
+		this.l0 = l0;
+		this.l1 = l1;
+		this.l2 = l2;
+		this.l3 = l3;
+	}
+
+	private Uint256Fixed(long[] limbs) {
+		this(limbs[0], limbs[1], limbs[2], limbs[3]);
+	}
+
+	// The value modulo 2^256 (a negative value is taken in two's complement)
+	public static Uint256Fixed valueOf(BigInteger value) {
+		return new Uint256Fixed(value.longValue(), value.shiftRight(64).longValue(), value.shiftRight(128).longValue(),
+					value.shiftRight(192).longValue());
+	}
+
+	// The operands of another implementation are converted, an Uint256Int is sign-extended as its int can have overflowed
+	static Uint256Fixed of(Uint256 value) {
+		if (value instanceof Uint256Fixed)
+			return (Uint256Fixed) value;
+		if (value instanceof Uint256Adaptive)
+			return ((Uint256Adaptive) value).toFixed();
+		if (value instanceof Uint256Int) {
+			long extension = value.asInt() < 0 ? -1L : 0L;
+			return new Uint256Fixed(value.asInt(), extension, extension, extension);
+		}
+
+		return valueOf(value.asBigInteger());
+	}
+
+	@Override
+	public Uint256Fixed sum(Uint256 value) {
+		Uint256Fixed other = of(value);
+
+		long r0 = l0 + other.l0;
+		long carry = Long.compareUnsigned(r0, l0) < 0 ? 1 : 0;
+		long r1 = l1 + other.l1 + carry;
+		carry = Long.compareUnsigned(r1, l1) < 0 || (carry == 1 && r1 == l1) ? 1 : 0;
+		long r2 = l2 + other.l2 + carry;
+		carry = Long.compareUnsigned(r2, l2) < 0 || (carry == 1 && r2 == l2) ? 1 : 0;
+		long r3 = l3 + other.l3 + carry;
+
+		return new Uint256Fixed(r0, r1, r2, r3);
+	}
+
+	@Override
+	public Uint256Fixed sub(Uint256 value) {
+		Uint256Fixed other = of(value);
+
+		long r0 = l0 - other.l0;
+		long borrow = Long.compareUnsigned(l0, other.l0) < 0 ? 1 : 0;
+		long r1 = l1 - other.l1 - borrow;
+		borrow = Long.compareUnsigned(l1, other.l1) < 0 || (borrow == 1 && l1 == other.l1) ? 1 : 0;
+		long r2 = l2 - other.l2 - borrow;
+		borrow = Long.compareUnsigned(l2, other.l2) < 0 || (borrow == 1 && l2 == other.l2) ? 1 : 0;
+		long r3 = l3 - other.l3 - borrow;
+
+		return new Uint256Fixed(r0, r1, r2, r3);
+	}
+
+	@Override
+	public Uint256Fixed mul(Uint256 value) {
+		Uint256Fixed other = of(value);
+
+		// Both operands fit in an int: the product fits in a long
+		if (fitsInt() && other.fitsInt())
+			return new Uint256Fixed(l0 * other.l0, 0, 0, 0);
+
+		// An operand fits in a long (a price times a quantity, for example)
+		if (other.fitsLong())
+			return multiplyByLong(other.l0);
+		if (fitsLong())
+			return other.multiplyByLong(l0);
+
+		// Schoolbook multiplication, the limbs of the product above the fourth one are dropped
+		long[] a = limbs();
+		long[] b = other.limbs();
+		long[] product = new long[LIMBS];
+
+		for (int i = 0; i < LIMBS; i++) {
+			if (a[i] == 0)
+				continue;
+
+			long carry = 0;
+			for (int j = 0; i + j < LIMBS; j++) {
+				long low = a[i] * b[j];
+				long high = multiplyHighUnsigned(a[i], b[j]);
+
+				long sum = product[i + j] + low;
+				if (Long.compareUnsigned(sum, low) < 0)
+					high++;
+				long withCarry = sum + carry;
+				if (Long.compareUnsigned(withCarry, sum) < 0)
+					high++;
+
+				product[i + j] = withCarry;
+				carry = high;
+			}
+		}
+
+		return new Uint256Fixed(product);
+	}
+
+	private Uint256Fixed multiplyByLong(long b) {
+		long r0 = l0 * b;
+		long carry = multiplyHighUnsigned(l0, b);
+
+		long low = l1 * b;
+		long r1 = low + carry;
+		carry = multiplyHighUnsigned(l1, b) + (Long.compareUnsigned(r1, low) < 0 ? 1 : 0);
+
+		low = l2 * b;
+		long r2 = low + carry;
+		carry = multiplyHighUnsigned(l2, b) + (Long.compareUnsigned(r2, low) < 0 ? 1 : 0);
+
+		long r3 = l3 * b + carry;
+
+		return new Uint256Fixed(r0, r1, r2, r3);
+	}
+
+	@Override
+	public Uint256 div(Uint256 value) {
+		Uint256Fixed other = of(value);
+		if (other.isZero())
+			throw new ArithmeticException("Division by zero");
+
+		if (fitsLong() && other.fitsLong())
+			return new Uint256Fixed(Long.divideUnsigned(l0, other.l0), 0, 0, 0);
+
+		long[] quotient = new long[LIMBS];
+		divide(limbs(), other.limbs(), quotient);
+
+		return new Uint256Fixed(quotient);
+	}
+
+	@Override
+	public Uint256 mod(Uint256 value) {
+		Uint256Fixed other = of(value);
+		if (other.isZero())
+			throw new ArithmeticException("Division by zero");
+
+		if (fitsLong() && other.fitsLong())
+			return new Uint256Fixed(Long.remainderUnsigned(l0, other.l0), 0, 0, 0);
+
+		long[] remainder = limbs();
+		divide(remainder, other.limbs(), null);
+
+		return new Uint256Fixed(remainder);
+	}
+
+	// Binary long division: the remainder is left in dividend, and the quotient is written in quotient if it is not null
+	private static void divide(long[] dividend, long[] divisor, long[] quotient) {
+		int shift = bitLength(dividend) - bitLength(divisor);
+		if (shift < 0)
+			return;
+
+		long[] shifted = shiftLeft(divisor, shift);
+		for (; shift >= 0; shift--) {
+			if (compare(dividend, shifted) >= 0) {
+				subtract(dividend, shifted);
+				if (quotient != null)
+					quotient[shift / 64] |= 1L << (shift % 64);
+			}
+			shiftRightOne(shifted);
+		}
+	}
+
+	// this == value
+	@Override
+	public boolean eq(Uint256 value) {
+		Uint256Fixed other = of(value);
+		return l0 == other.l0 && l1 == other.l1 && l2 == other.l2 && l3 == other.l3;
+	}
+
+	// this < value
+	@Override
+	public boolean le(Uint256 value) {
+		return compareTo(of(value)) < 0;
+	}
+
+	// this > value
+	@Override
+	public boolean gr(Uint256 value) {
+		return compareTo(of(value)) > 0;
+	}
+
+	// this >= value
+	@Override
+	public boolean geq(Uint256 value) {
+		return compareTo(of(value)) >= 0;
+	}
+
+	// this <= value
+	@Override
+	public boolean leq(Uint256 value) {
+		return compareTo(of(value)) <= 0;
+	}
+
+	private int compareTo(Uint256Fixed other) {
+		if (l3 != other.l3)
+			return Long.compareUnsigned(l3, other.l3);
+		if (l2 != other.l2)
+			return Long.compareUnsigned(l2, other.l2);
+		if (l1 != other.l1)
+			return Long.compareUnsigned(l1, other.l1);
+
+		return Long.compareUnsigned(l0, other.l0);
+	}
+
+	@Override
+	public int asInt() {
+		if (!fitsInt() || l0 > Integer.MAX_VALUE)
+			throw new ArithmeticException(this + " does not fit in an int");
+
+		return (int) l0;
+	}
+
+	@Override
+	public BigInteger asBigInteger() {
+		if (fitsLong() && l0 >= 0)
+			return BigInteger.valueOf(l0);
+
+		byte[] bytes = new byte[LIMBS * 8];
+		long[] limbs = limbs();
+		for (int i = 0; i < bytes.length; i++)
+			bytes[bytes.length - 1 - i] = (byte) (limbs[i / 8] >>> (8 * (i % 8)));
+
+		return new BigInteger(1, bytes);
+	}
+
+	@Override
+	public Uint256 valueOf(int i) {
+		return new Uint256Fixed(i);
+	}
+
+	@Override
+	public Uint256 keccak256() {
+		return Keccak256.get().update(this).digest();
+	}
+
+	@Override
+	public Uint256 sha3() {
+		return keccak256();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Uint256 && eq((Uint256) other);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(l0) ^ 31 * Long.hashCode(l1) ^ 961 * Long.hashCode(l2) ^ 29791 * Long.hashCode(l3);
+	}
+
+	@Override
+	public String toString() {
+		if (fitsLong())
+			return Long.toUnsignedString(l0);
+
+		return asBigInteger().toString();
+	}
+
+	private boolean isZero() {
+		return (l0 | l1 | l2 | l3) == 0;
+	}
+
+	private boolean fitsLong() {
+		return (l1 | l2 | l3) == 0;
+	}
+
+	// Used by Uint256Adaptive to demote a value
+	boolean fitsPositiveLong() {
+		return fitsLong() && l0 >= 0;
+	}
+
+	long low() {
+		return l0;
+	}
+
+	// The limbs, from the least significant one (used by Keccak256)
+	long limb(int i) {
+		switch (i) {
+		case 0:
+			return l0;
+		case 1:
+			return l1;
+		case 2:
+			return l2;
+		default:
+			return l3;
+		}
+	}
+
+	private boolean fitsInt() {
+		return fitsLong() && (l0 & ~INT_MASK) == 0;
+	}
+
+	private long[] limbs() {
+		return new long[] {l0, l1, l2, l3};
+	}
+
+	// The 64 high bits of the 128 bits product of two unsigned longs (Math.multiplyHigh is signed, and needs Java 9)
+	private static long multiplyHighUnsigned(long a, long b) {
+		long a0 = a & INT_MASK;
+		long a1 = a >>> 32;
+		long b0 = b & INT_MASK;
+		long b1 = b >>> 32;
+
+		long low = a0 * b0;
+		long cross1 = a0 * b1;
+		long cross2 = a1 * b0;
+		long middle = (low >>> 32) + (cross1 & INT_MASK) + (cross2 & INT_MASK);
+
+		return a1 * b1 + (cross1 >>> 32) + (cross2 >>> 32) + (middle >>> 32);
+	}
+
+	private static int bitLength(long[] limbs) {
+		for (int i = LIMBS - 1; i >= 0; i--)
+			if (limbs[i] != 0)
+				return 64 * i + 64 - Long.numberOfLeadingZeros(limbs[i]);
+
+		return 0;
+	}
+
+	private static int compare(long[] a, long[] b) {
+		for (int i = LIMBS - 1; i >= 0; i--)
+			if (a[i] != b[i])
+				return Long.compareUnsigned(a[i], b[i]);
+
+		return 0;
+	}
+
+	// a = a - b, with a >= b
+	private static void subtract(long[] a, long[] b) {
+		long borrow = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			long difference = a[i] - b[i] - borrow;
+			borrow = Long.compareUnsigned(a[i], b[i]) < 0 || (borrow == 1 && a[i] == b[i]) ? 1 : 0;
+			a[i] = difference;
+		}
+	}
+
+	private static long[] shiftLeft(long[] limbs, int shift) {
+		long[] shifted = new long[LIMBS];
+		int words = shift / 64;
+		int bits = shift % 64;
+
+		for (int i = LIMBS - 1; i >= words; i--) {
+			shifted[i] = limbs[i - words] << bits;
+			if (bits > 0 && i - words - 1 >= 0)
+				shifted[i] |= limbs[i - words - 1] >>> (64 - bits);
+		}
+
+		return shifted;
+	}
+
+	private static void shiftRightOne(long[] limbs) {
+		for (int i = 0; i < LIMBS; i++) {
+			limbs[i] >>>= 1;
+			if (i + 1 < LIMBS)
+				limbs[i] |= limbs[i + 1] << 63;
+		}
+	}
+}
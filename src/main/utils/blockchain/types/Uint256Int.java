@@ -2,6 +2,11 @@ package blockchain.types;
 
 import java.math.BigInteger;
 
+// An Uint256 stored in an int, it overflows as an int. The operations with an operand of another implementation
+// (which can hold values that do not fit in an int) are computed exactly with Uint256Fixed, and their result is an Uint256Int
+// if it fits in one, otherwise it is of the implementation of the operand (see widen). The operations with an Uint256Int
+// return an Uint256Int (the translator relies on it to convert the indexes of the arrays with asInt).
+
 public class Uint256Int implements Uint256 {
 
 	private final int number;
@@ -25,8 +30,14 @@ public class Uint256Int implements Uint256 {
     @ ensures  \result = this.number + value.number;
     @*/
 	@Override
-	public Uint256Int sum(Uint256 value) throws Exception {
-		return new Uint256Int(this.number + value.asInt());
+	public Uint256 sum(Uint256 value) throws Exception {
+		if (value instanceof Uint256Int)
+			return sum((Uint256Int) value);
+		return widen(Uint256Fixed.of(this).sum(value), value);
+	}
+
+	public Uint256Int sum(Uint256Int value) {
+		return new Uint256Int(this.number + value.number);
 	}
 
 
@@ -36,8 +47,14 @@ public class Uint256Int implements Uint256 {
     @ ensures  \result = this.number - value.number;
     @*/
 	@Override
-	public Uint256Int sub(Uint256 value) throws Exception {
-		return new Uint256Int(this.number - value.asInt());
+	public Uint256 sub(Uint256 value) throws Exception {
+		if (value instanceof Uint256Int)
+			return sub((Uint256Int) value);
+		return widen(Uint256Fixed.of(this).sub(value), value);
+	}
+
+	public Uint256Int sub(Uint256Int value) {
+		return new Uint256Int(this.number - value.number);
 	}
 
 	/* public normal_behavior
@@ -46,8 +63,14 @@ public class Uint256Int implements Uint256 {
     @ ensures  \result = this.number * value.number;
     @*/
 	@Override
-	public Uint256Int mul(Uint256 value) throws Exception {
-		return new Uint256Int(this.number * value.asInt());
+	public Uint256 mul(Uint256 value) throws Exception {
+		if (value instanceof Uint256Int)
+			return mul((Uint256Int) value);
+		return widen(Uint256Fixed.of(this).mul(value), value);
+	}
+
+	public Uint256Int mul(Uint256Int value) {
+		return new Uint256Int(this.number * value.number);
 	}
 
 	/* public normal_behavior
@@ -58,7 +81,9 @@ public class Uint256Int implements Uint256 {
 	// TODO: Take care of division by 0
 	@Override
 	public Uint256 div(Uint256 value) throws Exception {
-		return new Uint256Int(this.number / value.asInt());
+		if (value instanceof Uint256Int)
+			return new Uint256Int(this.number / ((Uint256Int) value).number);
+		return widen((Uint256Fixed) Uint256Fixed.of(this).div(value), value);
 	}
 
 	/* public normal_behavior
@@ -68,37 +93,62 @@ public class Uint256Int implements Uint256 {
     @*/
 	@Override
 	public Uint256 mod(Uint256 value) throws Exception {
-		return new Uint256Int(this.number % value.asInt());
+		if (value instanceof Uint256Int)
+			return new Uint256Int(this.number % ((Uint256Int) value).number);
+		return widen((Uint256Fixed) Uint256Fixed.of(this).mod(value), value);
 	}
 
 	// this == value
 	@Override
 	public /* pure @*/ boolean eq(Uint256 value) {
-		return this.number == value.asInt();
+		if (value instanceof Uint256Int)
+			return this.number == ((Uint256Int) value).number;
+		return Uint256Fixed.of(this).eq(value);
 	}
 
 	// this < value
 	@Override
 	public /* pure @*/ boolean le(Uint256 value) {
-		return this.number < value.asInt();
+		if (value instanceof Uint256Int)
+			return this.number < ((Uint256Int) value).number;
+		return Uint256Fixed.of(this).le(value);
 	}
 
 	// this > value
 	@Override
 	public /* pure @*/ boolean gr(Uint256 value) {
-		return this.number > value.asInt();
+		if (value instanceof Uint256Int)
+			return this.number > ((Uint256Int) value).number;
+		return Uint256Fixed.of(this).gr(value);
 	}
 
 	// this >= value
 	@Override
 	public /* pure @*/ boolean geq(Uint256 value) {
-		return this.number >= value.asInt();
+		if (value instanceof Uint256Int)
+			return this.number >= ((Uint256Int) value).number;
+		return Uint256Fixed.of(this).geq(value);
 	}
 
 	// this <= value
 	@Override
 	public /* pure @*/ boolean leq(Uint256 value) {
-		return this.number <= value.asInt();
+		if (value instanceof Uint256Int)
+			return this.number <= ((Uint256Int) value).number;
+		return Uint256Fixed.of(this).leq(value);
+	}
+
+	// The result of an operation with an operand of another implementation, computed exactly: it is an Uint256Int if it fits in one
+	// (the negative ints are numbers above 2^255, see Uint256Fixed.of), otherwise it is of the implementation of the operand
+	private static Uint256 widen(Uint256Fixed result, Uint256 operand) {
+		if (result.fitsPositiveLong() && result.low() <= Integer.MAX_VALUE)
+			return new Uint256Int((int) result.low());
+		if (operand instanceof Uint256Adaptive)
+			return Uint256Adaptive.valueOf(result);
+		if (operand instanceof Uint256BigInteger)
+			return Uint256BigInteger.valueOf(result.asBigInteger());
+
+		return result;
 	}
 
 	public static void main(String[] args) {
@@ -110,17 +160,16 @@ public class Uint256Int implements Uint256 {
 		return number;
 	}
 
+	// The hash does not fit in an int, it is an Uint256Fixed
 	@Override
 	public Uint256 keccak256() {
-		// TODO: implement
-		return Uint256.ZERO;
+		return Keccak256.get().update(this).digest();
 	}
 
 
 	@Override
 	public Uint256 sha3() {
-		// TODO: implement
-		return Uint256.ZERO;
+		return keccak256();
 	}
 
 	@Override
@@ -133,6 +182,17 @@ public class Uint256Int implements Uint256 {
 		return new Uint256Int(i);
 	}
 
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof Uint256 && eq((Uint256) other);
+	}
+
+	// The same hash as the Uint256Fixed of the same value (a negative int is a number above 2^255, see Uint256Fixed.of)
+	@Override
+	public int hashCode() {
+		return number >= 0 ? number : Uint256Fixed.of(this).hashCode();
+	}
+
 	// Auxiliary method for logging purposes
 	@Override
 	public String toString() {
@@ -0,0 +1,66 @@
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.stmt.Statement;
+
+import junit.framework.TestCase;
+
+// The refinement of the writes to the state: the arrays, the indexes and the structs that are calls are evaluated once
+public class SymbolSolverTest extends TestCase {
+    private static final String SOURCE =
+	"pragma solidity ^0.4.0;\n" +
+	"contract S {\n" +
+	"    struct P { uint a; }\n" +
+	"    uint[] values;\n" +
+	"    P[] ps;\n" +
+	"    P p;\n" +
+	"    mapping(uint => P) pm;\n" +
+	"    uint counter;\n" +
+	"    function next() internal returns (uint) { counter = counter + 1; return counter; }\n" +
+	"    function get() internal returns (P storage) { return p; }\n" +
+	"    function f(uint v) public {\n" +
+	"        values[next()] = v;\n" +
+	"        ps[next()].a = v;\n" +
+	"        pm[next()].a = v;\n" +
+	"        get().a = v;\n" +
+	"        p.a = v;\n" +
+	"    }\n" +
+	"}\n";
+
+    private static List<Statement> statementsOfF(boolean inferTypes) {
+	Translator translator = new Translator();
+	translator.setInferTypes(inferTypes);
+	CompilationUnit cu = translator.translate(CharStreams.fromString(SOURCE));
+
+	MethodDeclaration f = cu.findAll(MethodDeclaration.class).stream()
+	    .filter(method -> method.getNameAsString().equals("f"))
+	    .findFirst().get();
+
+	return f.getBody().get().getStatements();
+    }
+
+    private static int occurrences(String text, String call) {
+	return text.split(java.util.regex.Pattern.quote(call), -1).length - 1;
+    }
+
+    private static void checkEvaluatedOnce(List<Statement> statements) {
+	assertEquals(5, statements.size());
+	for (Statement statement: statements.subList(0, 3))
+	    assertEquals(statement.toString(), 1, occurrences(statement.toString(), "next()"));
+	assertEquals(statements.get(3).toString(), 1, occurrences(statements.get(3).toString(), "get()"));
+
+	// A struct that is a name is repeated
+	assertEquals("p.a = Journal.write(p, \"a\", p.a, v);", statements.get(4).toString());
+    }
+
+    public void testSideEffectsEvaluatedOnce() {
+	checkEvaluatedOnce(statementsOfF(false));
+    }
+
+    public void testSideEffectsEvaluatedOnceWithInferredTypes() {
+	checkEvaluatedOnce(statementsOfF(true));
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.Collections;
+import java.util.Set;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+
+import junit.framework.TestCase;
+
+// The modifiers with parameters: their types are inferred from their declarations, and the arguments are substituted as expressions
+public class TranslateVisitorTest extends TestCase {
+    private static final String SOURCE =
+	"pragma solidity ^0.4.0;\n" +
+	"contract M {\n" +
+	"    struct P { address owner; }\n" +
+	"    uint[] values;\n" +
+	"    P p;\n" +
+	"    address owner;\n" +
+	"    modifier atIndex(uint i) { require(values[i.asInt()] > 0); _; }\n" +
+	"    modifier pays(address to, uint amount) { to.transfer(amount); _; }\n" +
+	"    modifier ownedBy(P q) { require(q.owner == msg.sender); _; }\n" +
+	"    function get() internal returns (P storage) { return p; }\n" +
+	"    function f(uint v, uint i) public atIndex(i) pays(owner, v) ownedBy(get()) { }\n" +
+	"}\n" +
+	"contract Literal is M {\n" +
+	"    function g() public atIndex(1) { }\n" +
+	"}\n";
+
+    private static CompilationUnit translate() {
+	SolidityParser parser = new SolidityParser(new CommonTokenStream(new SolidityLexer(CharStreams.fromString(SOURCE))));
+	TranslateVisitor visitor = new TranslateVisitor();
+	visitor.setInferTypes(true);
+
+	return (CompilationUnit) visitor.visit(parser.sourceUnit());
+    }
+
+    // The arguments have the declared types of the parameters, only the literal argument of the second contract needs the symbol solver
+    public void testParameterTypes() {
+	Set<String> untyped = translate().getData(TypeEnvironment.UNTYPED_CONTRACTS);
+
+	assertEquals(Collections.singleton("Literal"), untyped);
+    }
+
+    // A call used as the scope of a field, and a method called on a parameter
+    public void testArgumentsAreScopes() {
+	MethodDeclaration f = translate().findAll(MethodDeclaration.class).stream()
+	    .filter(method -> method.getNameAsString().equals("f"))
+	    .findFirst().get();
+	String body = f.getBody().get().toString();
+
+	assertTrue(body, body.contains("owner.transfer(v, this, block, tx);"));
+	assertTrue(body, body.contains("require(get().owner.eq(msg.sender));"));
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import junit.framework.TestCase;
+
+// The clients of a TranslationServer: they need its token, and a client that keeps its connection open does not block the others
+public class TranslationServerTest extends TestCase {
+    private static final String SOURCE = "pragma solidity ^0.4.0;\ncontract C {\n    uint x;\n    function f() public { x = 1; }\n}\n";
+
+    private String home;
+    private Path directory;
+    private TranslationServer server;
+    private Thread serving;
+
+    @Override
+    protected void setUp() throws Exception {
+	home = System.getProperty("user.home");
+	directory = Files.createTempDirectory("server");
+	System.setProperty("user.home", directory.toString());
+
+	server = new TranslationServer(0, null);
+	serving = new Thread(() -> {
+		try {
+		    server.serve();
+		}
+		catch (IOException e) {
+		    throw new RuntimeException(e);
+		}
+	});
+	serving.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+	System.setProperty("user.home", home);
+    }
+
+    public void testClients() throws Exception {
+	Path tokenFile = TranslationServer.tokenFile(server.getPort());
+	if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+	    assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+
+	Path src = directory.resolve("C.sol");
+	Files.write(src, SOURCE.getBytes(StandardCharsets.UTF_8));
+
+	TranslationClient client = new TranslationClient(server.getPort());
+	try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+	    client.translate(src, directory.resolve("C.java"));
+	    assertTrue(Files.exists(directory.resolve("C.java")));
+
+	    try {
+		client.translate(directory.resolve("Missing.sol"), directory.resolve("Missing.java"));
+		fail("A missing file was translated");
+	    }
+	    catch (IOException e) {
+		// Expected, the server answers with an error
+	    }
+	}
+
+	try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+	    Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+	    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+	    out.write(TranslationServer.TOKEN + TranslationServer.SEPARATOR + "0\n");
+	    out.write(TranslationServer.SHUTDOWN + "\n");
+	    out.flush();
+
+	    assertTrue(in.readLine().startsWith(TranslationServer.ERROR));
+	    assertNull(in.readLine());
+	}
+
+	client.shutdown();
+	serving.join();
+	assertFalse(Files.exists(tokenFile));
+    }
+}
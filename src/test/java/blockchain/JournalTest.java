@@ -0,0 +1,101 @@
+package blockchain;
+
+import junit.framework.TestCase;
+
+// The checkpoints of nested calls, and the checkpoints that do not end the innermost running call
+public class JournalTest extends TestCase {
+	private static final String FIELD = "field";
+
+	// A state variable, written as in a translated contract
+	private static class State implements Journaled {
+		String field = "initial";
+
+		void set(String value) {
+			field = Journal.write(this, FIELD, field, value);
+		}
+
+		@Override
+		public void restore(Object key, Object value) {
+			field = (String) value;
+		}
+	}
+
+	private final State state = new State();
+
+	public void testNestedRollback() {
+		int outer = Journal.checkpoint();
+		state.set("outer");
+
+		int inner = Journal.checkpoint();
+		state.set("inner");
+		Journal.rollback(inner);
+		Journal.commit(inner);
+		assertEquals("outer", state.field);
+
+		Journal.rollback(outer);
+		Journal.commit(outer);
+		assertEquals("initial", state.field);
+	}
+
+	// The struct and the index are calls, evaluated once by assign and assignElement
+	public void testAssignEvaluatesOnce() {
+		State[] structs = {state};
+		String[] values = {"initial"};
+		int[] calls = new int[1];
+
+		int checkpoint = Journal.checkpoint();
+		Journal.assign(structs[calls[0]++], FIELD, journaled -> journaled.field, (journaled, written) -> journaled.field = written, "assigned");
+		Journal.assignElement(values, calls[0]++ - 1, "assigned");
+		assertEquals(2, calls[0]);
+		assertEquals("assigned", state.field);
+		assertEquals("assigned", values[0]);
+
+		Journal.rollback(checkpoint);
+		Journal.commit(checkpoint);
+		assertEquals("initial", state.field);
+		assertEquals("initial", values[0]);
+	}
+
+	public void testCommitOfAnOuterCheckpoint() {
+		int outer = Journal.checkpoint();
+		state.set("outer");
+		int inner = Journal.checkpoint();
+
+		try {
+			Journal.commit(outer);
+			fail("The checkpoint of the outer call ended the inner one");
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+		finally {
+			Journal.commit(inner);
+			Journal.commit(outer);
+		}
+	}
+
+	public void testCheckpointAfterTheWrites() {
+		int checkpoint = Journal.checkpoint();
+
+		try {
+			Journal.rollback(checkpoint + 1);
+			fail("A checkpoint after the recorded writes was rolled back");
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+		finally {
+			Journal.commit(checkpoint);
+		}
+	}
+
+	public void testCommitOutsideOfACall() {
+		try {
+			Journal.commit(0);
+			fail("A checkpoint was committed outside of a call");
+		}
+		catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package blockchain;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Fixed;
+import blockchain.types.Uint256Int;
+
+import junit.framework.TestCase;
+
+// The removal of the keys (the entries after a removed one are moved back), the resizes of the table, the values created by
+// the reads of a nested mapping, and the writes reverted by a rollback
+public class MappingTest extends TestCase {
+	// Below three quarters of the initial capacity (16), the table is not resized and its clusters are long
+	private static final int FULL = 11;
+	private static final int KEYS = 5000;
+
+	private static Uint256 value(int i) {
+		return new Uint256Int(i + 1);
+	}
+
+	private static void assertContains(Mapping<Uint256, Uint256> mapping, List<Integer> present, List<Integer> removed) {
+		assertEquals(present.size(), mapping.size());
+		for (int key: present)
+			assertTrue("Key " + key, mapping.get(new Uint256Int(key)).eq(value(key)));
+		for (int key: removed)
+			assertTrue("Key " + key, mapping.get(new Uint256Int(key)).eq(Uint256.ZERO));
+	}
+
+	// The keys are removed in the order of their insertion (the opposite of a rollback), and in random orders, so that
+	// the removed entries are in the middle of their clusters
+	public void testRemoveMovesBackTheFollowingEntries() {
+		Random random = new Random(16);
+		for (int order = 0; order < 100; order++) {
+			Mapping<Uint256, Uint256> mapping = new Mapping<>(Uint256.ZERO);
+			List<Integer> present = new ArrayList<>();
+			for (int key = 0; key < FULL; key++) {
+				mapping.set(new Uint256Int(key), value(key));
+				present.add(key);
+			}
+
+			List<Integer> removals = new ArrayList<>(present);
+			if (order > 0)
+				Collections.shuffle(removals, random);
+
+			List<Integer> removed = new ArrayList<>();
+			for (int key: removals) {
+				mapping.restore(new Uint256Int(key), Mapping.ABSENT);
+				present.remove((Integer) key);
+				removed.add(key);
+				assertContains(mapping, present, removed);
+			}
+		}
+	}
+
+	// Removing a missing key changes nothing
+	public void testRemoveMissingKey() {
+		Mapping<Uint256, Uint256> mapping = new Mapping<>(Uint256.ZERO);
+		mapping.set(new Uint256Int(1), value(1));
+
+		mapping.restore(new Uint256Int(2), Mapping.ABSENT);
+		assertContains(mapping, Collections.singletonList(1), Collections.singletonList(2));
+	}
+
+	public void testResize() {
+		Mapping<Uint256, Uint256> mapping = new Mapping<>(Uint256.ZERO);
+		List<Integer> present = new ArrayList<>();
+		for (int key = 0; key < KEYS; key++) {
+			mapping.set(new Uint256Int(key), value(key));
+			present.add(key);
+		}
+
+		assertContains(mapping, present, Collections.singletonList(KEYS));
+	}
+
+	// The keys are found whatever the implementation of the Uint256 or the instance of the Address
+	public void testResizeWithWideAndAddressKeys() {
+		Mapping<Uint256, Uint256> wide = new Mapping<>(Uint256.ZERO);
+		Mapping<Address, Uint256> addresses = new Mapping<>(Uint256.ZERO);
+		BigInteger base = BigInteger.ONE.shiftLeft(200);
+		for (int i = 0; i < KEYS; i++) {
+			wide.set(Uint256Fixed.valueOf(base.add(BigInteger.valueOf(i))), value(i));
+			addresses.set(Address.of(BigInteger.valueOf(i).shiftLeft(100).toByteArray()), value(i));
+		}
+
+		assertEquals(KEYS, wide.size());
+		assertEquals(KEYS, addresses.size());
+		for (int i = 0; i < KEYS; i++) {
+			assertTrue(wide.get(Uint256Fixed.valueOf(base.add(BigInteger.valueOf(i)))).eq(value(i)));
+			assertTrue(addresses.get(Address.of(BigInteger.valueOf(i).shiftLeft(100).toByteArray())).eq(value(i)));
+		}
+		assertTrue(wide.get(new Uint256Int(0)).eq(Uint256.ZERO));
+	}
+
+	// A rollback after a resize removes the keys from a table whose entries are no longer in the order of their insertion
+	public void testRollbackAfterResize() {
+		Mapping<Uint256, Uint256> mapping = new Mapping<>(Uint256.ZERO);
+		List<Integer> present = new ArrayList<>();
+		for (int key = 0; key < FULL; key++) {
+			mapping.set(new Uint256Int(key), value(key));
+			present.add(key);
+		}
+
+		int checkpoint = Journal.checkpoint();
+		List<Integer> added = new ArrayList<>();
+		for (int key = FULL; key < KEYS; key++) {
+			mapping.set(new Uint256Int(key), value(key));
+			added.add(key);
+		}
+		Journal.rollback(checkpoint);
+		Journal.commit(checkpoint);
+
+		assertContains(mapping, present, added);
+	}
+
+	public void testReadOfANestedMappingIsReverted() {
+		Mapping<Uint256, Mapping<Uint256, Uint256>> nested = Mapping.nested(() -> new Mapping<>(Uint256.ZERO));
+
+		int checkpoint = Journal.checkpoint();
+		nested.get(new Uint256Int(1)).set(new Uint256Int(2), Uint256.ONE);
+		assertEquals(1, nested.size());
+		Journal.rollback(checkpoint);
+		Journal.commit(checkpoint);
+
+		assertEquals(0, nested.size());
+		assertTrue(nested.get(new Uint256Int(1)).get(new Uint256Int(2)).eq(Uint256.ZERO));
+	}
+
+	// Outside of a call, the value created by a read stays in the mapping
+	public void testReadOutsideOfACall() {
+		Mapping<Uint256, Mapping<Uint256, Uint256>> nested = Mapping.nested(() -> new Mapping<>(Uint256.ZERO));
+
+		Mapping<Uint256, Uint256> inner = nested.get(new Uint256Int(1));
+		assertSame(inner, nested.get(new Uint256Int(1)));
+		assertEquals(1, nested.size());
+	}
+
+	public void testWriteIsReverted() {
+		Mapping<Uint256, Uint256> mapping = new Mapping<>(Uint256.ZERO);
+		mapping.set(new Uint256Int(1), Uint256.ONE);
+
+		int checkpoint = Journal.checkpoint();
+		mapping.set(new Uint256Int(1), Uint256.TWO);
+		mapping.set(new Uint256Int(2), Uint256.TWO);
+		Journal.rollback(checkpoint);
+		Journal.commit(checkpoint);
+
+		assertEquals(1, mapping.size());
+		assertTrue(mapping.get(new Uint256Int(1)).eq(Uint256.ONE));
+		assertTrue(mapping.get(new Uint256Int(2)).eq(Uint256.ZERO));
+	}
+}
@@ -0,0 +1,79 @@
+package blockchain;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import blockchain.types.Address;
+import blockchain.types.Uint256;
+import blockchain.types.Uint256Adaptive;
+import blockchain.types.Uint256Fixed;
+import blockchain.types.Uint256Int;
+
+// The values of a trace that do not fit in an int, replayed on contracts translated with another implementation than Uint256Fixed
+public class ReplayTest extends TestCase {
+	private static final BigInteger LONG = BigInteger.ONE.shiftLeft(40);
+	private static final BigInteger WIDE = BigInteger.ONE.shiftLeft(200).add(BigInteger.ONE);
+
+	// A contract that adds the amounts it receives, as translated, and keeps the implementations of the amounts
+	public static class Counter extends Address {
+		Uint256 total;
+		final Set<Class<?>> implementations = new HashSet<>();
+
+		Counter(Uint256 zero) {
+			total = zero;
+		}
+
+		public void call_add(Uint256 amount, Message msg, Block block, Transaction tx) throws Exception {
+			total = total.sum(amount);
+			implementations.add(amount.getClass());
+		}
+	}
+
+	private Path trace;
+
+	@Override
+	protected void setUp() throws Exception {
+		trace = Files.createTempFile("replay", ".trace");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Files.delete(trace);
+	}
+
+	private Counter replay(Uint256 implementation) throws Exception {
+		Counter counter = new Counter(implementation.valueOf(0));
+		Address sender = Address.of(new byte[20]);
+		try (TraceWriter writer = new TraceWriter(trace)) {
+			writer.call(counter, "add", sender, Uint256.ZERO, null, sender, Uint256.ONE, Uint256Fixed.valueOf(LONG));
+			writer.call(counter, "add", sender, Uint256.ZERO, null, sender, Uint256.ONE, Uint256Fixed.valueOf(WIDE));
+			writer.call(counter, "add", sender, Uint256.ZERO, null, sender, Uint256.ONE, new Uint256Int(5));
+		}
+
+		Replay replay = new Replay(implementation);
+		replay.register(counter);
+		replay.replay(trace);
+
+		return counter;
+	}
+
+	public void testWideValuesWithUint256Int() throws Exception {
+		Counter counter = replay(new Uint256Int());
+
+		assertEquals(new HashSet<>(Arrays.asList(Uint256Int.class, Uint256Fixed.class)), counter.implementations);
+		assertEquals(LONG.add(WIDE).add(BigInteger.valueOf(5)), counter.total.asBigInteger());
+	}
+
+	public void testWideValuesWithUint256Adaptive() throws Exception {
+		Counter counter = replay(Uint256Adaptive.valueOf(BigInteger.ZERO));
+
+		assertEquals(new HashSet<>(Arrays.asList(Uint256Adaptive.class)), counter.implementations);
+		assertEquals(LONG.add(WIDE).add(BigInteger.valueOf(5)), counter.total.asBigInteger());
+	}
+}
@@ -0,0 +1,63 @@
+package blockchain.types;
+
+import java.lang.ref.WeakReference;
+
+import junit.framework.TestCase;
+
+// The registry of the accounts: interned while they are used, collected when they are not, and never returning a contract
+public class AddressTest extends TestCase {
+	private static final int COLLECTIONS = 50;
+
+	private static byte[] address(int last) {
+		byte[] bytes = new byte[20];
+		bytes[0] = 0x7F;
+		bytes[19] = (byte) last;
+
+		return bytes;
+	}
+
+	// Whether the referent is collected after a few garbage collections
+	private static boolean collected(WeakReference<?> reference) throws InterruptedException {
+		for (int i = 0; i < COLLECTIONS && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		return reference.get() == null;
+	}
+
+	public void testInterned() {
+		assertSame(Address.of(address(1)), Address.of(address(1)));
+		assertNotSame(Address.of(address(1)), Address.of(address(2)));
+	}
+
+	public void testUnusedAccountIsCollected() throws Exception {
+		WeakReference<Address> account = new WeakReference<>(Address.of(address(3)));
+
+		assertTrue(collected(account));
+		assertEquals(Uint256.ZERO, Address.of(address(3)).balance);
+	}
+
+	public void testAccountWithBalanceIsKept() throws Exception {
+		Address receiver = Address.of(address(4));
+		Address sender = Address.of(address(5));
+		receiver.balance = new Uint256Int(100);
+		sender.balance = new Uint256Int(100);
+		receiver.transfer(sender, new Uint256Int(10));
+
+		WeakReference<Address> account = new WeakReference<>(sender);
+		sender = null;
+
+		assertFalse(collected(account));
+		assertEquals(new Uint256Int(90), Address.of(address(5)).balance);
+	}
+
+	public void testContractIsNotInterned() {
+		Address contract = new Address() {};
+		Address account = Address.of(contract.toBytes());
+
+		assertNotSame(contract, account);
+		assertTrue(contract.eq(account));
+		assertSame(account, Address.of(contract.toBytes()));
+	}
+}
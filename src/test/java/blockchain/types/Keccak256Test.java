@@ -0,0 +1,53 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+// The hashes of Crypto against known Keccak-256 digests (the ones of Ethereum), and the packed encoding of the values
+public class Keccak256Test extends TestCase {
+	private static final BigInteger EMPTY = digest("c5d2460186f7233c927e7db2dcc703c0e500b653ca82273b7bfad8045d85a470");
+	private static final BigInteger ABC = digest("4e03657aea45a94fc7d47ba826c8d667c0d1e6e33a64a036ec44f58fa12d6c45");
+	private static final BigInteger UINT_ZERO = digest("290decd9548b62a8d60345a988386fc84ba6bc95484008f6362f93160ef3e563");
+	private static final BigInteger UINT_ONE = digest("b10e2d527612073b26eecdfd717e6a320cf44b4afac2b0732d9fcbe2b7fa0cf6");
+
+	private static BigInteger digest(String hex) {
+		return new BigInteger(hex, 16);
+	}
+
+	public void testEmptyString() {
+		assertEquals(EMPTY, Crypto.keccak256("").asBigInteger());
+		assertEquals(EMPTY, Crypto.keccak256().asBigInteger());
+	}
+
+	public void testAbc() {
+		assertEquals(ABC, Crypto.keccak256("abc").asBigInteger());
+		assertEquals(ABC, Crypto.keccak256((Object) new byte[] {'a', 'b', 'c'}).asBigInteger());
+	}
+
+	// An uint256 is hashed as its 32 bytes, whatever its implementation
+	public void testUint256() {
+		for (Uint256 zero: new Uint256[] {Uint256.ZERO, new Uint256Fixed(), Uint256Adaptive.valueOf(0L), new Uint256BigInteger(BigInteger.ZERO)})
+			assertEquals(zero.getClass().getName(), UINT_ZERO, Crypto.keccak256(zero).asBigInteger());
+		for (Uint256 one: new Uint256[] {Uint256.ONE, new Uint256Fixed(1), Uint256Adaptive.valueOf(1L), new Uint256BigInteger(BigInteger.ONE)})
+			assertEquals(one.getClass().getName(), UINT_ONE, Crypto.keccak256(one).asBigInteger());
+	}
+
+	// The packed values are concatenated: the uint256 after an address is not aligned on the lanes of the state,
+	// and the 200 bytes span two blocks of the sponge
+	public void testPackedEncoding() {
+		Address address = Address.of(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+		Uint256 value = Uint256Fixed.valueOf(BigInteger.ONE.shiftLeft(255).add(BigInteger.valueOf(0x0102030405060708L)));
+		byte[] bytes = new byte[148];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) i;
+
+		ByteBuffer packed = ByteBuffer.allocate(20 + 32 + 148);
+		packed.put(address.toBytes());
+		packed.put(value.asBigInteger().toByteArray(), 1, 32); // The first byte of toByteArray is the sign
+		packed.put(bytes);
+
+		assertEquals(Crypto.keccak256((Object) packed.array()), Crypto.keccak256(address, value, bytes));
+	}
+}
@@ -0,0 +1,86 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// The promotion of an Uint256Adaptive to its wide representation when a result does not fit in a long, and its demotion back
+public class Uint256AdaptiveTest extends TestCase {
+	private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(256);
+	private static final BigInteger LONG_BOUNDARY = BigInteger.ONE.shiftLeft(63);
+	private static final int PAIRS = 2000;
+
+	private static final Uint256Adaptive MAX_LONG = Uint256Adaptive.valueOf(Long.MAX_VALUE);
+
+	public void testSumPromotes() {
+		Uint256Adaptive sum = MAX_LONG.sum(Uint256.ONE);
+
+		assertFalse(sum.isSmall());
+		assertEquals(LONG_BOUNDARY, sum.asBigInteger());
+	}
+
+	public void testMulPromotes() {
+		Uint256Adaptive product = MAX_LONG.mul(MAX_LONG);
+
+		assertFalse(product.isSmall());
+		assertEquals(BigInteger.valueOf(Long.MAX_VALUE).pow(2), product.asBigInteger());
+	}
+
+	public void testSubWrapsAround() {
+		Uint256Adaptive difference = Uint256Adaptive.valueOf(1L).sub(Uint256Adaptive.valueOf(2L));
+
+		assertFalse(difference.isSmall());
+		assertEquals(MODULUS.subtract(BigInteger.ONE), difference.asBigInteger());
+	}
+
+	public void testWideResultIsDemoted() {
+		Uint256Adaptive wide = MAX_LONG.sum(Uint256.ONE);
+
+		assertTrue(wide.sub(Uint256.ONE).isSmall());
+		assertTrue(wide.sub(Uint256.ONE).eq(MAX_LONG));
+		assertTrue(((Uint256Adaptive) wide.div(Uint256.TWO)).isSmall());
+		assertTrue(Uint256Adaptive.valueOf(MODULUS.subtract(BigInteger.ONE)).sum(Uint256.ONE).isSmall());
+	}
+
+	public void testSmallValuesAreShared() {
+		assertSame(Uint256Adaptive.valueOf(7L), new Uint256Adaptive(3).sum(new Uint256Adaptive(4)));
+		assertSame(Uint256Adaptive.valueOf(0L), MAX_LONG.sum(Uint256.ONE).sub(MAX_LONG.sum(Uint256.ONE)));
+	}
+
+	// A promoted value is the same key as the Uint256Fixed of the same number (see Mapping)
+	public void testSameKeyAsFixed() {
+		Uint256Adaptive wide = MAX_LONG.mul(Uint256Adaptive.valueOf(3L));
+		Uint256Fixed fixed = Uint256Fixed.valueOf(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(3)));
+
+		assertEquals(fixed, wide);
+		assertEquals(wide, fixed);
+		assertEquals(fixed.hashCode(), wide.hashCode());
+		assertEquals(new Uint256Fixed(42).hashCode(), Uint256Adaptive.valueOf(42L).hashCode());
+	}
+
+	// Random operands around 2^63, whose results are promoted or not, against BigInteger modulo 2^256
+	public void testRandomPairsAroundTheLongBoundary() throws Exception {
+		Random random = new Random(63);
+		for (int i = 0; i < PAIRS; i++) {
+			BigInteger a = LONG_BOUNDARY.add(BigInteger.valueOf(random.nextInt(1 << 20) - (1 << 19))).shiftRight(random.nextInt(4));
+			BigInteger b = BigInteger.valueOf(random.nextInt(1 << 20) + 1).shiftLeft(random.nextInt(64));
+			Uint256Adaptive x = Uint256Adaptive.valueOf(a);
+			Uint256Adaptive y = Uint256Adaptive.valueOf(b);
+			String pair = a + ", " + b;
+
+			assertResult(pair, a.add(b).mod(MODULUS), x.sum(y));
+			assertResult(pair, a.subtract(b).mod(MODULUS), x.sub(y));
+			assertResult(pair, b.subtract(a).mod(MODULUS), y.sub(x));
+			assertResult(pair, a.multiply(b).mod(MODULUS), x.mul(y));
+			assertResult(pair, a.divide(b), (Uint256Adaptive) x.div(y));
+			assertResult(pair, a.mod(b), (Uint256Adaptive) x.mod(y));
+		}
+	}
+
+	// The result is small exactly when it fits in a long
+	private static void assertResult(String pair, BigInteger expected, Uint256Adaptive result) {
+		assertEquals(pair, expected, result.asBigInteger());
+		assertEquals(pair, expected.compareTo(LONG_BOUNDARY) < 0, result.isSmall());
+	}
+}
@@ -0,0 +1,90 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// The arithmetic of Uint256Fixed against the one of BigInteger modulo 2^256, on random operands of all the widths
+public class Uint256FixedTest extends TestCase {
+	private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(256);
+	private static final int PAIRS = 2000;
+
+	private final Random random = new Random(256);
+
+	// A random value whose width is random too, so that both the operands that fit in a long and the wide ones are tested
+	private BigInteger randomValue() {
+		switch (random.nextInt(8)) {
+		case 0:
+			return BigInteger.ZERO;
+		case 1:
+			return MODULUS.subtract(BigInteger.ONE);
+		case 2: // A limb boundary
+			return BigInteger.ONE.shiftLeft(64 * random.nextInt(4)).subtract(BigInteger.valueOf(random.nextInt(2)));
+		default:
+			return new BigInteger(1 + random.nextInt(256), random);
+		}
+	}
+
+	public void testRandomPairs() throws Exception {
+		for (int i = 0; i < PAIRS; i++) {
+			BigInteger a = randomValue();
+			BigInteger b = randomValue();
+			Uint256Fixed x = Uint256Fixed.valueOf(a);
+			Uint256Fixed y = Uint256Fixed.valueOf(b);
+			String pair = a + ", " + b;
+
+			assertEquals(pair, a, x.asBigInteger());
+			assertEquals(pair, a.add(b).mod(MODULUS), x.sum(y).asBigInteger());
+			assertEquals(pair, a.subtract(b).mod(MODULUS), x.sub(y).asBigInteger());
+			assertEquals(pair, a.multiply(b).mod(MODULUS), x.mul(y).asBigInteger());
+			if (b.signum() != 0) {
+				assertEquals(pair, a.divide(b), x.div(y).asBigInteger());
+				assertEquals(pair, a.mod(b), x.mod(y).asBigInteger());
+			}
+
+			int comparison = a.compareTo(b);
+			assertEquals(pair, comparison == 0, x.eq(y));
+			assertEquals(pair, comparison < 0, x.le(y));
+			assertEquals(pair, comparison > 0, x.gr(y));
+			assertEquals(pair, comparison >= 0, x.geq(y));
+			assertEquals(pair, comparison <= 0, x.leq(y));
+			assertEquals(pair, comparison == 0, x.equals(y));
+		}
+	}
+
+	public void testValueOfWrapsAround() {
+		assertEquals(BigInteger.valueOf(5), Uint256Fixed.valueOf(MODULUS.add(BigInteger.valueOf(5))).asBigInteger());
+		assertEquals(MODULUS.subtract(BigInteger.ONE), Uint256Fixed.valueOf(BigInteger.ONE.negate()).asBigInteger());
+	}
+
+	public void testDivisionByZero() throws Exception {
+		Uint256Fixed wide = Uint256Fixed.valueOf(MODULUS.subtract(BigInteger.ONE));
+
+		try {
+			wide.div(Uint256.ZERO);
+			fail("Divided by zero");
+		}
+		catch (ArithmeticException e) {
+			// Expected
+		}
+
+		try {
+			wide.mod(new Uint256Fixed());
+			fail("Divided by zero");
+		}
+		catch (ArithmeticException e) {
+			// Expected
+		}
+	}
+
+	// The operands of the other implementations are converted (an Uint256Int that overflowed is sign-extended)
+	public void testOperandsOfOtherImplementations() throws Exception {
+		Uint256Fixed max = Uint256Fixed.valueOf(MODULUS.subtract(BigInteger.ONE));
+
+		assertTrue(max.sum(Uint256.ONE).eq(Uint256.ZERO));
+		assertTrue(max.sum(Uint256Adaptive.valueOf(2L)).eq(Uint256.ONE));
+		assertTrue(new Uint256Fixed().sub(new Uint256Int(1)).eq(max));
+		assertEquals(MODULUS.subtract(BigInteger.ONE), Uint256Fixed.of(new Uint256Int(-1)).asBigInteger());
+	}
+}
@@ -0,0 +1,52 @@
+package blockchain.types;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+
+// The operations of an Uint256Int with an operand of another implementation whose result does not fit in an int
+public class Uint256IntTest extends TestCase {
+	private static final BigInteger WIDE = BigInteger.ONE.shiftLeft(200).add(BigInteger.valueOf(12345));
+
+	public void testSumWithWideFixed() throws Exception {
+		Uint256 result = new Uint256Int(7).sum(Uint256Fixed.valueOf(WIDE));
+
+		assertTrue(result instanceof Uint256Fixed);
+		assertEquals(WIDE.add(BigInteger.valueOf(7)), result.asBigInteger());
+	}
+
+	public void testOneEtherBalance() throws Exception {
+		Uint256 ether = Uint256Fixed.valueOf(BigInteger.TEN.pow(18));
+		Uint256 balance = Uint256.ZERO.sum(ether).sum(Uint256.ONE);
+
+		assertEquals(BigInteger.TEN.pow(18).add(BigInteger.ONE), balance.asBigInteger());
+		assertTrue(balance.sub(ether).eq(Uint256.ONE));
+	}
+
+	public void testMulWithAdaptive() throws Exception {
+		Uint256 result = new Uint256Int(Integer.MAX_VALUE).mul(Uint256Adaptive.valueOf(BigInteger.valueOf(Integer.MAX_VALUE)));
+
+		assertTrue(result instanceof Uint256Adaptive);
+		assertEquals(BigInteger.valueOf(Integer.MAX_VALUE).pow(2), result.asBigInteger());
+	}
+
+	public void testSubWithWideFixed() throws Exception {
+		Uint256 result = new Uint256Int(1).sub(Uint256Fixed.valueOf(WIDE));
+
+		assertEquals(BigInteger.ONE.subtract(WIDE).mod(BigInteger.ONE.shiftLeft(256)), result.asBigInteger());
+	}
+
+	public void testResultThatFitsIsAnInt() throws Exception {
+		Uint256 result = new Uint256Int(100).sub(Uint256Fixed.valueOf(BigInteger.valueOf(58)));
+
+		assertTrue(result instanceof Uint256Int);
+		assertEquals(42, result.asInt());
+		assertTrue(new Uint256Int(6).div(Uint256Fixed.valueOf(WIDE)).eq(Uint256.ZERO));
+	}
+
+	public void testSameImplementationStaysInt() {
+		Uint256Int result = new Uint256Int(3).sum(new Uint256Int(4));
+
+		assertEquals(7, result.asInt());
+	}
+}